@@ -0,0 +1,89 @@
+package org.xenei.bloompaper;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xenei.bloompaper.index.flatbloofi.ColumnAnd;
+import org.xenei.bloompaper.index.flatbloofi.ScalarColumnAnd;
+
+/**
+ * JMH benchmark of the {@link ColumnAnd} implementations used by the column major FlatBloofi.
+ * <p>
+ * The "best" engine is the vector implementation when the project is built with the {@code vector}
+ * profile and the benchmark JVM has the incubator module, e.g.
+ * </p>
+ * <pre>
+ * mvn -Pjmh,vector package
+ * java -cp target/BloomPaper-0.1.0-SNAPSHOT.jar org.openjdk.jmh.Main ColumnAndBenchmark \
+ *      -jvmArgsAppend "--add-modules jdk.incubator.vector"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnAndBenchmark {
+
+    /**
+     * "scalar" or "best".
+     */
+    @Param({ "scalar", "best" })
+    public String engine;
+
+    /**
+     * The number of 64 filter blocks in each column.
+     */
+    @Param({ "1024" })
+    public int blocks;
+
+    /**
+     * The number of columns ANDed together, equivalent to the number of enabled bits in the target.
+     */
+    @Param({ "17" })
+    public int columns;
+
+    private ColumnAnd columnAnd;
+    private long[][] matrix;
+    private long[] busy;
+    private long[] acc;
+
+    @Setup
+    public void setup() {
+        columnAnd = "scalar".equals(engine) ? new ScalarColumnAnd() : ColumnAnd.load();
+        Random random = new Random(1000003L);
+        matrix = new long[columns][blocks];
+        for (long[] column : matrix) {
+            for (int i = 0; i < blocks; i++) {
+                // dense columns so the AND never terminates early.
+                column[i] = random.nextLong() | random.nextLong() | random.nextLong();
+            }
+        }
+        busy = new long[blocks];
+        Arrays.fill(busy, ~0L);
+        acc = new long[blocks];
+    }
+
+    @Benchmark
+    public boolean and() {
+        System.arraycopy(busy, 0, acc, 0, blocks);
+        boolean any = true;
+        for (int i = 0; i < columns && any; i++) {
+            any = columnAnd.and(acc, matrix[i], 0, blocks);
+        }
+        return any;
+    }
+}
@@ -0,0 +1,166 @@
+package org.xenei.bloompaper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.xenei.bloompaper.index.BloomIndex;
+import org.xenei.bloompaper.index.ConcurrentBloomIndex;
+
+/**
+ * JMH benchmark of a BloomIndex shared by concurrent readers and a writer.
+ * <p>
+ * Three threads search the index while one thread deletes and re-adds filters. The {@code locking}
+ * parameter selects either the {@link ConcurrentBloomIndex} read/write lock or a single monitor
+ * around the whole index.  Indexes that are thread safe, such as ShardedList-Concurrent, may also be
+ * run without locking.
+ * </p>
+ * <pre>
+ * java -cp target/BloomPaper-0.1.0-SNAPSHOT.jar org.openjdk.jmh.Main ConcurrentIndexBenchmark -p index=ShardedList
+ * java -cp target/BloomPaper-0.1.0-SNAPSHOT.jar org.openjdk.jmh.Main ConcurrentIndexBenchmark \
+ *      -p index=ShardedList-Concurrent -p locking=none
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentIndexBenchmark {
+
+    @State(Scope.Group)
+    public static class SharedIndex {
+        /**
+         * The name of the index as registered in {@link Test#init()}.
+         */
+        @Param({ "FlatBloofi", "NaturalBloofi", "ShardedList", "ShardedList-Concurrent" })
+        public String index;
+
+        /**
+         * The number of filters loaded into the index.
+         */
+        @Param({ "10000" })
+        public int population;
+
+        /**
+         * "readwrite" for ConcurrentBloomIndex, "synchronized" for a single monitor or "none" for
+         * thread safe indexes.
+         */
+        @Param({ "readwrite", "synchronized" })
+        public String locking;
+
+        private BloomIndex bloomIndex;
+        private BloomFilter[] filters;
+        private final AtomicInteger nextFilter = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup() throws ReflectiveOperationException {
+            Test.init();
+            Shape shape = Shape.fromNP(population, 1.0 / population);
+            BloomIndex base = Test.constructors.get(index).newInstance(population, shape);
+            filters = new BloomFilter[population];
+            for (int i = 0; i < population; i++) {
+                Hasher hasher = new EnhancedDoubleHasher(i + 1, 1000003L * (i + 1));
+                filters[i] = Test.GateKeeper.makeFilter(shape, hasher);
+                base.add(filters[i]);
+            }
+            if ("none".equals(locking)) {
+                bloomIndex = base;
+            } else {
+                bloomIndex = "synchronized".equals(locking) ? new SynchronizedBloomIndex(base)
+                        : new ConcurrentBloomIndex(base);
+            }
+        }
+
+        /**
+         * Closes the shared index at the end of the trial.
+         */
+        @TearDown(Level.Trial)
+        public void close() {
+            bloomIndex.close();
+        }
+
+        BloomFilter nextFilter() {
+            return filters[Math.floorMod(nextFilter.getAndIncrement(), filters.length)];
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void search(SharedIndex state, Blackhole blackhole) {
+        state.bloomIndex.search(blackhole::consume, state.nextFilter());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void update(SharedIndex state) {
+        BloomFilter filter = state.nextFilter();
+        if (state.bloomIndex.delete(filter)) {
+            state.bloomIndex.add(filter);
+        }
+    }
+
+    /**
+     * Wraps an index in a single monitor.
+     */
+    static class SynchronizedBloomIndex extends BloomIndex {
+        private final BloomIndex wrapped;
+
+        SynchronizedBloomIndex(BloomIndex wrapped) {
+            super(0, null);
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public synchronized void add(BloomFilter filter) {
+            wrapped.add(filter);
+        }
+
+        @Override
+        public synchronized boolean delete(BloomFilter filter) {
+            return wrapped.delete(filter);
+        }
+
+        @Override
+        protected synchronized void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+            wrapped.search(consumer, filter);
+        }
+
+        @Override
+        public String getName() {
+            return "Synchronized " + wrapped.getName();
+        }
+
+        @Override
+        public synchronized int count() {
+            return wrapped.count();
+        }
+
+        @Override
+        public synchronized void close() {
+            wrapped.close();
+        }
+    }
+}
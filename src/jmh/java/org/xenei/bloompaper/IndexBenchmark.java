@@ -0,0 +1,316 @@
+package org.xenei.bloompaper;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xenei.bloompaper.geoname.GeoName;
+import org.xenei.bloompaper.geoname.GeoNameGatekeeperHasher;
+import org.xenei.bloompaper.geoname.GeoNameIterator;
+import org.xenei.bloompaper.geoname.GeoNameReferenceHasher;
+import org.xenei.bloompaper.index.BloomIndex;
+
+/**
+ * JMH benchmarks for the BloomIndex implementations registered in {@link Test#init()}.
+ * <p>
+ * The index, population, usage pattern, Shape and query type are parameters of the
+ * {@link IndexState} so any combination can be selected with the JMH {@code -p} option, e.g.
+ * </p>
+ * <pre>
+ * java -cp target/BloomPaper-0.1.0-SNAPSHOT.jar org.openjdk.jmh.Main IndexBenchmark \
+ *      -p index=FlatBloofi,ShardedList -p population=10000 -p usage=GateKeeper
+ * </pre>
+ * <p>
+ * If {@code allCountries.txt} is on the classpath (see README) the GeoName data is used to build
+ * the filters, otherwise a repeatable set of synthetic GeoNames is generated.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class IndexBenchmark {
+
+    /**
+     * The maximum number of sample filters used for the query and delete benchmarks.
+     */
+    static final int SAMPLE_SIZE = 1000;
+
+    /**
+     * The loaded index and the filters used to exercise it.
+     */
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        /**
+         * The name of the index as registered in {@link Test#init()}.
+         */
+        @Param({ "Array", "Array-Exact", "BF-Trie4", "BF-Trie8", "BF-Trie-Path", "BF-Trie-Permuted", "Bloofi",
+                "Bloofi-Exact", "FlatBloofi", "FlatBloofi-Column", "FlatBloofi-Compressed", "FlatBloofi-Mapped",
+                "FlatBloofi-Parallel", "Hamming", "Inverted", "List", "List-Exact", "NaturalBloofi",
+                "NaturalBloofi-Parallel", "Packed", "Packed-Exact", "ShardedList", "ShardedList-Concurrent",
+                "ShardedList-Exact", "ShardedList-MinHash", "ShardedList-Packed", "ShardedList-Parallel" })
+        public String index;
+
+        /**
+         * The number of filters loaded into the index.
+         */
+        @Param({ "100", "1000", "10000", "100000", "1000000" })
+        public int population;
+
+        /**
+         * The usage pattern, either "Reference" or "GateKeeper".
+         */
+        @Param({ "Reference", "GateKeeper" })
+        public String usage;
+
+        /**
+         * The shape of the filters.  "pattern" uses the shape defined by the usage pattern,
+         * otherwise the value is {@code n:p} and is passed to {@code Shape.fromNP()}.
+         */
+        @Param({ "pattern" })
+        public String shape;
+
+        /**
+         * The type of the sample filters used for query and delete.
+         */
+        @Param({ "COMPLETE" })
+        public Stats.Type type;
+
+        private Constructor<? extends BloomIndex> constructor;
+        private Shape filterShape;
+        private boolean gatekeeper;
+        private BloomFilter[] filters;
+        private BloomFilter[] samples;
+        private BloomIndex bloomIndex;
+        private int nextSample;
+        private int nextFilter;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            Test.init();
+            constructor = Test.constructors.get(index);
+            if (constructor == null) {
+                throw new IllegalArgumentException(index + " is not a valid test name");
+            }
+            gatekeeper = "GateKeeper".equals(usage);
+            Test.UsagePattern pattern = gatekeeper ? new Test.GateKeeper() : new Test.Reference();
+            filterShape = parseShape(pattern);
+
+            filters = new BloomFilter[population];
+            List<GeoName> sample = new ArrayList<GeoName>(SAMPLE_SIZE);
+            int stride = Math.max(1, population / SAMPLE_SIZE);
+            Iterator<GeoName> iter = GeoNameIterator.DEFAULT_INPUT == null ? new SyntheticGeoNames()
+                    : new GeoNameIterator(GeoNameIterator.DEFAULT_INPUT);
+            try {
+                for (int i = 0; i < population; i++) {
+                    GeoName geoName = iter.next();
+                    filters[i] = filterFor(geoName);
+                    if ((i % stride) == 0 && sample.size() < SAMPLE_SIZE) {
+                        sample.add(geoName);
+                    }
+                }
+            } finally {
+                if (iter instanceof AutoCloseable) {
+                    ((AutoCloseable) iter).close();
+                }
+            }
+            samples = pattern.createSample(filterShape, type, sample);
+
+            bloomIndex = newIndex();
+            for (BloomFilter filter : filters) {
+                bloomIndex.add(filter);
+            }
+        }
+
+        private Shape parseShape(Test.UsagePattern pattern) {
+            if ("pattern".equals(shape)) {
+                return pattern.getShape(population);
+            }
+            String[] parts = shape.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(String.format("Shape %s is not 'pattern' or 'n:p'", shape));
+            }
+            return Shape.fromNP(Integer.parseInt(parts[0]), Double.parseDouble(parts[1]));
+        }
+
+        private BloomFilter filterFor(GeoName geoName) {
+            if (gatekeeper) {
+                return Test.GateKeeper.makeFilter(filterShape, GeoNameGatekeeperHasher.createHasher(geoName));
+            }
+            return GeoNameReferenceHasher.createHasherCollection(geoName).filterFor(filterShape);
+        }
+
+        /**
+         * Closes the loaded index at the end of the trial.
+         */
+        @TearDown(Level.Trial)
+        public void close() {
+            bloomIndex.close();
+        }
+
+        /**
+         * Creates a new empty index of the benchmarked type.
+         * @return an empty BloomIndex.
+         * @throws ReflectiveOperationException on error calling the constructor.
+         */
+        BloomIndex newIndex() throws ReflectiveOperationException {
+            return constructor.newInstance(population, filterShape);
+        }
+
+        /**
+         * Gets the next sample filter.  Cycles through the samples.
+         * @return the next sample filter.
+         */
+        BloomFilter nextSample() {
+            BloomFilter result = samples[nextSample];
+            nextSample = (nextSample + 1) % samples.length;
+            return result;
+        }
+
+        /**
+         * Gets the next loaded filter.  Cycles through the loaded filters.
+         * @return the next loaded filter.
+         */
+        BloomFilter nextFilter() {
+            BloomFilter result = filters[nextFilter];
+            nextFilter = (nextFilter + 1) % filters.length;
+            return result;
+        }
+    }
+
+    /**
+     * Removes a loaded filter before each add invocation so that the index population is stable.
+     */
+    @State(Scope.Thread)
+    public static class AddState {
+        private BloomFilter filter;
+
+        @Setup(Level.Invocation)
+        public void remove(IndexState state) {
+            filter = state.nextFilter();
+            state.bloomIndex.delete(filter);
+        }
+    }
+
+    /**
+     * Restores the deleted filter after each delete invocation so that the index population is stable.
+     */
+    @State(Scope.Thread)
+    public static class DeleteState {
+        private BloomFilter deleted;
+
+        @TearDown(Level.Invocation)
+        public void restore(IndexState state) {
+            if (deleted != null) {
+                state.bloomIndex.add(deleted);
+                deleted = null;
+            }
+        }
+    }
+
+    /**
+     * Closes the index built by each load invocation.
+     */
+    @State(Scope.Thread)
+    public static class LoadState {
+        private BloomIndex loaded;
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            if (loaded != null) {
+                loaded.close();
+                loaded = null;
+            }
+        }
+    }
+
+    /**
+     * Builds a complete index.  Equivalent to the load phase in {@link Test}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public BloomIndex load(IndexState state, LoadState load) throws ReflectiveOperationException {
+        BloomIndex bi = state.newIndex();
+        load.loaded = bi;
+        for (BloomFilter filter : state.filters) {
+            bi.add(filter);
+        }
+        return bi;
+    }
+
+    @Benchmark
+    public void add(IndexState state, AddState add) {
+        state.bloomIndex.add(add.filter);
+    }
+
+    @Benchmark
+    public int count(IndexState state) {
+        return state.bloomIndex.count(state.nextSample());
+    }
+
+    @Benchmark
+    public void search(IndexState state, Blackhole blackhole) {
+        state.bloomIndex.search(blackhole::consume, state.nextSample());
+    }
+
+    @Benchmark
+    public boolean delete(IndexState state, DeleteState delete) {
+        BloomFilter filter = state.nextSample();
+        boolean result = state.bloomIndex.delete(filter);
+        if (result) {
+            delete.deleted = filter;
+        }
+        return result;
+    }
+
+    /**
+     * Generates a repeatable stream of GeoNames for use when the GeoName data file is not available.
+     * Names are unique, feature and country codes are drawn from small sets so that the
+     * LOWCARD queries match many filters.
+     */
+    static class SyntheticGeoNames implements Iterator<GeoName> {
+        private static final String[] FEATURE_CODES = { "PPL", "PPLA", "PPLX", "ADM1", "ADM2", "STM", "LK", "MT",
+                "HLL", "ISL", "HTL", "SCH", "CH", "FRM", "PRK", "AIRP" };
+        private final Random random = new Random(1000003L);
+        private int id = 0;
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public GeoName next() {
+            GeoName geoName = new GeoName();
+            geoName.geonameid = Integer.toString(++id);
+            geoName.name = "Name" + Long.toHexString(random.nextLong());
+            geoName.feature_code = FEATURE_CODES[random.nextInt(FEATURE_CODES.length)];
+            geoName.country_code = new String(
+                    new char[] { (char) ('A' + random.nextInt(26)), (char) ('A' + random.nextInt(26)) });
+            return geoName;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,11 +33,29 @@ import org.xenei.bloompaper.geoname.GeoNameIterator;
 import org.xenei.bloompaper.index.BloomIndex;
 import org.xenei.bloompaper.index.BloomIndexBFTrie4;
 import org.xenei.bloompaper.index.BloomIndexBFTrie8;
+import org.xenei.bloompaper.index.BloomIndexBFTriePath;
+import org.xenei.bloompaper.index.BloomIndexBFTriePermuted;
 import org.xenei.bloompaper.index.BloomIndexBloofi;
+import org.xenei.bloompaper.index.BloomIndexColumnFlatBloofi;
+import org.xenei.bloompaper.index.BloomIndexCompressedFlatBloofi;
+import org.xenei.bloompaper.index.BloomIndexExactArray;
+import org.xenei.bloompaper.index.BloomIndexExactBloofi;
+import org.xenei.bloompaper.index.BloomIndexExactList;
+import org.xenei.bloompaper.index.BloomIndexExactPacked;
 import org.xenei.bloompaper.index.BloomIndexFlatBloofi;
 import org.xenei.bloompaper.index.BloomIndexHamming;
+import org.xenei.bloompaper.index.BloomIndexInverted;
 import org.xenei.bloompaper.index.BloomIndexList;
+import org.xenei.bloompaper.index.BloomIndexMappedFlatBloofi;
+import org.xenei.bloompaper.index.BloomIndexPacked;
+import org.xenei.bloompaper.index.BloomIndexParallelFlatBloofi;
 import org.xenei.bloompaper.index.naturalbloofi.NaturalBloofi;
+import org.xenei.bloompaper.index.naturalbloofi.ParallelNaturalBloofi;
+import org.xenei.bloompaper.index.shardedlist.ConcurrentShardedList;
+import org.xenei.bloompaper.index.shardedlist.ExactShardedList;
+import org.xenei.bloompaper.index.shardedlist.MinHashShardedList;
+import org.xenei.bloompaper.index.shardedlist.PackedShardedList;
+import org.xenei.bloompaper.index.shardedlist.ParallelShardedList;
 import org.xenei.bloompaper.index.shardedlist.ShardedList;
 import org.xenei.bloompaper.index.BloomIndexArray;
 
@@ -55,6 +74,7 @@ public class Test {
      * The number of times to run each test.
      */
     private static int RUN_COUNT = 5;
+    private static boolean BULK_LOAD = false;
 
     /**
      * The populations to use for the tests.  Will execute the test on each population RUN_COUNT times.
@@ -70,13 +90,36 @@ public class Test {
     public static void init() throws NoSuchMethodException, SecurityException {
         constructors.put("Hamming", BloomIndexHamming.class.getConstructor(int.class, Shape.class));
         constructors.put("Bloofi", BloomIndexBloofi.class.getConstructor(int.class, Shape.class));
+        constructors.put("Bloofi-Exact", BloomIndexExactBloofi.class.getConstructor(int.class, Shape.class));
         constructors.put("FlatBloofi", BloomIndexFlatBloofi.class.getConstructor(int.class, Shape.class));
+        constructors.put("FlatBloofi-Parallel",
+                BloomIndexParallelFlatBloofi.class.getConstructor(int.class, Shape.class));
+        constructors.put("FlatBloofi-Mapped", BloomIndexMappedFlatBloofi.class.getConstructor(int.class, Shape.class));
+        constructors.put("FlatBloofi-Column", BloomIndexColumnFlatBloofi.class.getConstructor(int.class, Shape.class));
+        constructors.put("FlatBloofi-Compressed",
+                BloomIndexCompressedFlatBloofi.class.getConstructor(int.class, Shape.class));
         constructors.put("BF-Trie4", BloomIndexBFTrie4.class.getConstructor(int.class, Shape.class));
         constructors.put("BF-Trie8", BloomIndexBFTrie8.class.getConstructor(int.class, Shape.class));
+        constructors.put("BF-Trie-Path", BloomIndexBFTriePath.class.getConstructor(int.class, Shape.class));
+        constructors.put("BF-Trie-Permuted",
+                BloomIndexBFTriePermuted.class.getConstructor(int.class, Shape.class));
+        constructors.put("Inverted", BloomIndexInverted.class.getConstructor(int.class, Shape.class));
         constructors.put("Array", BloomIndexArray.class.getConstructor(int.class, Shape.class));
+        constructors.put("Array-Exact", BloomIndexExactArray.class.getConstructor(int.class, Shape.class));
         constructors.put("List", BloomIndexList.class.getConstructor(int.class, Shape.class));
+        constructors.put("List-Exact", BloomIndexExactList.class.getConstructor(int.class, Shape.class));
+        constructors.put("Packed", BloomIndexPacked.class.getConstructor(int.class, Shape.class));
+        constructors.put("Packed-Exact", BloomIndexExactPacked.class.getConstructor(int.class, Shape.class));
         constructors.put("NaturalBloofi", NaturalBloofi.class.getConstructor(int.class, Shape.class));
+        constructors.put("NaturalBloofi-Parallel",
+                ParallelNaturalBloofi.class.getConstructor(int.class, Shape.class));
         constructors.put("ShardedList", ShardedList.class.getConstructor(int.class, Shape.class));
+        constructors.put("ShardedList-Concurrent",
+                ConcurrentShardedList.class.getConstructor(int.class, Shape.class));
+        constructors.put("ShardedList-Parallel", ParallelShardedList.class.getConstructor(int.class, Shape.class));
+        constructors.put("ShardedList-Exact", ExactShardedList.class.getConstructor(int.class, Shape.class));
+        constructors.put("ShardedList-Packed", PackedShardedList.class.getConstructor(int.class, Shape.class));
+        constructors.put("ShardedList-MinHash", MinHashShardedList.class.getConstructor(int.class, Shape.class));
     }
 
     /**
@@ -98,6 +141,7 @@ public class Test {
         options.addOption("i", "iterations", true, "The number of iterations defualt=" + RUN_COUNT);
         options.addOption("s", "size", true,
                 "The population size.  May occure more than once.  defualt=100, 1000, 10000, 100000, and 1000000.  Default = all");
+        options.addOption("b", "bulk", false, "Load the indexes with a single bulk load rather than one filter at a time");
         options.addOption("v", "short-verify", false,
                 "Skip verification of collected bloom filters. Does not preserve bloom filters in .dat file");
         return options;
@@ -165,6 +209,7 @@ public class Test {
         }
 
         boolean collectFilters = !cmd.hasOption("v");
+        BULK_LOAD = cmd.hasOption("b");
 
         final List<String> tests = new ArrayList<String>();
         final Table table = new Table(dir);
@@ -308,17 +353,20 @@ public class Test {
             UsagePattern pattern) throws InstantiationException, IllegalAccessException, InvocationTargetException {
 
         BloomIndex bi = doLoad(constructor, filters, shape, stats);
+        try {
+            System.out.println("Calculating query times");
+            for (Stats.Type type : pattern.getSupportedTypes()) {
+                BloomFilter[] bfSample = pattern.createSample(shape, type, sample);
+                doCount(type, bi, bfSample, stats, collectFilters);
+            }
 
-        System.out.println("Calculating query times");
-        for (Stats.Type type : pattern.getSupportedTypes()) {
-            BloomFilter[] bfSample = pattern.createSample(shape, type, sample);
-            doCount(type, bi, bfSample, stats, collectFilters);
-        }
-
-        System.out.println("Calculating delete times");
-        for (Stats.Type type : pattern.getSupportedTypes()) {
-            BloomFilter[] bfSample = pattern.createSample(shape, type, sample);
-            doDelete(bi, type, bfSample, stats);
+            System.out.println("Calculating delete times");
+            for (Stats.Type type : pattern.getSupportedTypes()) {
+                BloomFilter[] bfSample = pattern.createSample(shape, type, sample);
+                doDelete(bi, type, bfSample, stats);
+            }
+        } finally {
+            bi.close();
         }
         System.out.println("test complete");
         return stats;
@@ -344,15 +392,27 @@ public class Test {
         StopWatch stopwatch = new StopWatch();
         for (int run = 0; run < RUN_COUNT; run++) {
             Stats stat = stats.get(run);
+            if (bi != null) {
+                bi.close();
+            }
             bi = constructor.newInstance(stat.getPopulation(), shape);
             long elapsed = 0;
 
-            for (int i = 0; i < stat.getPopulation(); i++) {
+            if (BULK_LOAD) {
+                BloomFilter[] population = Arrays.copyOf(filters, stat.getPopulation());
                 stopwatch.reset();
                 stopwatch.start();
-                bi.add(filters[i]);
+                bi.bulkLoad(population);
                 stopwatch.stop();
-                elapsed += stopwatch.getNanoTime();
+                elapsed = stopwatch.getNanoTime();
+            } else {
+                for (int i = 0; i < stat.getPopulation(); i++) {
+                    stopwatch.reset();
+                    stopwatch.start();
+                    bi.add(filters[i]);
+                    stopwatch.stop();
+                    elapsed += stopwatch.getNanoTime();
+                }
             }
             stat.setLoad(elapsed);
             System.out.println(stat.loadDisplayString());
@@ -474,7 +534,7 @@ public class Test {
         private void readFilters(GeoNameIterator iter) {
             System.out.print("Creating filters...");
             for (int i = 0; i < 1000000; i++) {
-                filters[1] = GeoNameReferenceHasher.createHasherCollection(iter.next()).filterFor(shape);
+                filters[i] = GeoNameReferenceHasher.createHasherCollection(iter.next()).filterFor(shape);
                 if ((i % 1000) == 0) {
                     System.out.print(".");
                 }
@@ -528,7 +588,7 @@ public class Test {
          * @param hasher the hasher for the filter.
          * @return A Bloom filter of the proper shape built with the hasher.
          */
-        private BloomFilter makeFilter(Shape shape, Hasher hasher) {
+        static BloomFilter makeFilter(Shape shape, Hasher hasher) {
             double d = shape.getNumberOfHashFunctions()  / (double)BitMap.numberOfBitMaps(shape.getNumberOfBits());
             BloomFilter bf = (d > 2.0) ? new SimpleBloomFilter(shape) : new SparseBloomFilter(shape);
             bf.merge(hasher);
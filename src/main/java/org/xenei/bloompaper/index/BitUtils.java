@@ -1,10 +1,8 @@
 package org.xenei.bloompaper.index;
 
-import java.nio.ByteBuffer;
 import java.util.function.BiPredicate;
 import java.util.function.LongPredicate;
 
-import org.apache.commons.codec.digest.MurmurHash3;
 import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Hasher;
@@ -56,11 +54,7 @@ public final class BitUtils {
     public static int maxSet(long[] bits) {
         for (int longIndex = bits.length - 1; longIndex >= 0; longIndex--) {
             if (bits[longIndex] != 0) {
-                for (int bitIndex = Long.SIZE - 1; bitIndex >= 0; bitIndex--) {
-                    if ((bits[longIndex] & BitMap.getLongBit(bitIndex)) != 0) {
-                        return (Long.SIZE * longIndex) + bitIndex;
-                    }
-                }
+                return (Long.SIZE * longIndex) + Long.SIZE - 1 - Long.numberOfLeadingZeros(bits[longIndex]);
             }
         }
         return -1;
@@ -81,6 +75,117 @@ public final class BitUtils {
         return -1;
     }
 
+    /**
+     * Given a set of longs as a bit vector find the lowest bit set at or after the bit specified.
+     * @param bits the set of longs as a bit vector
+     * @param from the index of the first bit to check.
+     * @return the lowest bit set or -1 for none.
+     */
+    public static int nextSet(long[] bits, int from) {
+        int longIndex = BitMap.getLongIndex(from);
+        if (longIndex >= bits.length) {
+            return -1;
+        }
+        long word = bits[longIndex] & (-1L << from);
+        while (word == 0) {
+            if (++longIndex == bits.length) {
+                return -1;
+            }
+            word = bits[longIndex];
+        }
+        return (Long.SIZE * longIndex) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Transposes a 64 x 64 bit matrix in place.  On return bit {@code j} of {@code matrix[i]}
+     * is the original bit {@code i} of {@code matrix[j]}.  The off diagonal blocks are swapped
+     * in halves, quarters and so on down to single bits.
+     * @param matrix the 64 rows of the matrix.
+     */
+    public static void transpose64(long[] matrix) {
+        long mask = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>= 1, mask ^= (mask << j)) {
+            for (int k = 0; k < Long.SIZE; k = ((k | j) + 1) & ~j) {
+                long t = ((matrix[k] >>> j) ^ matrix[k | j]) & mask;
+                matrix[k] ^= t << j;
+                matrix[k | j] ^= t;
+            }
+        }
+    }
+
+    /**
+     * The number of bits below the highest set bit that contribute to the approximate log.
+     */
+    private static final int LOG_WINDOW = 25;
+
+    /**
+     * {@code LOG_FRACTIONS[d]} is 2^-d.
+     */
+    private static final double[] LOG_FRACTIONS = new double[LOG_WINDOW + 1];
+
+    static {
+        for (int i = 0; i <= LOG_WINDOW; i++) {
+            LOG_FRACTIONS[i] = Math.scalb(1.0, -i);
+        }
+    }
+
+    /**
+     * Get the approximate base 2 log of a set of longs considered as an unsigned
+     * integer.  The highest set bit is the integer part of the log and each set bit
+     * within 25 positions below it adds 2^-(distance) to the fraction.  Adding bits never
+     * decreases the value so a filter that contains another filter has a log greater
+     * than or equal to the log of the other filter.
+     * <p>
+     * This is a derivation of http://en.wikipedia.org/wiki/Binary_logarithm#Algorithm
+     * computed a word at a time without allocation.
+     * </p>
+     * @param bits the set of longs as a bit vector
+     * @return the approximate log or 0 if no bits are set.
+     */
+    public static double approximateLog(long[] bits) {
+        int longIndex = bits.length - 1;
+        while (longIndex >= 0 && bits[longIndex] == 0) {
+            longIndex--;
+        }
+        if (longIndex < 0) {
+            return 0;
+        }
+        long word = bits[longIndex];
+        int top = (Long.SIZE * longIndex) + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+        int limit = top - LOG_WINDOW;
+        double result = top;
+        word &= ~BitMap.getLongBit(top);
+        while (true) {
+            while (word != 0) {
+                int bit = (Long.SIZE * longIndex) + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+                if (bit < limit) {
+                    return result;
+                }
+                result += LOG_FRACTIONS[top - bit];
+                word &= ~BitMap.getLongBit(bit);
+            }
+            longIndex--;
+            if (longIndex < 0 || (Long.SIZE * (longIndex + 1)) <= limit) {
+                return result;
+            }
+            word = bits[longIndex];
+        }
+    }
+
+    /**
+     * The Murmur3 64-bit finalizer.
+     * @param hash the value to mix.
+     * @return the mixed value.
+     */
+    public static long fmix64(long hash) {
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+
     public static String format(long[] bits) {
         StringBuilder sb = new StringBuilder();
         for (long l : bits) {
@@ -126,20 +231,110 @@ public final class BitUtils {
         }
     }
 
+    /**
+     * Creates the Hashers used to place filters in shards.  The hasher is built from the 128-bit
+     * MurmurHash3 of the bit maps.
+     * <p>
+     * The hash is calculated while the bit maps of the filter are streamed so the bit maps are not
+     * copied.
+     * </p>
+     */
     public static class ShardingHasherFactory {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private static final ThreadLocal<Murmur3x64> MURMUR = ThreadLocal.withInitial(Murmur3x64::new);
 
         private ShardingHasherFactory() {
             // do not instantiate
         }
 
+        /**
+         * The state of the 128-bit x64 MurmurHash3 of a stream of bit maps.  Each bit map is read as
+         * 8 big endian bytes and the hash reads little endian blocks of 16 bytes, so the first word
+         * of each block is held until its pair arrives.
+         */
+        private static final class Murmur3x64 implements LongPredicate {
+            private long h1;
+            private long h2;
+            private long k1;
+            private int words;
+            private int w;
+
+            void reset(int words) {
+                this.words = words;
+                h1 = 0;
+                h2 = 0;
+                w = 0;
+            }
+
+            @Override
+            public boolean test(long word) {
+                if (w == words) {
+                    return false;
+                }
+                if ((w & 1) == 0) {
+                    k1 = word;
+                } else {
+                    h1 ^= mixK1(Long.reverseBytes(k1));
+                    h1 = Long.rotateLeft(h1, 27);
+                    h1 += h2;
+                    h1 = h1 * 5 + 0x52dce729;
+
+                    h2 ^= mixK2(Long.reverseBytes(word));
+                    h2 = Long.rotateLeft(h2, 31);
+                    h2 += h1;
+                    h2 = h2 * 5 + 0x38495ab5;
+                }
+                w++;
+                return true;
+            }
+
+            /**
+             * Hashes the missing words as zero and finalises the hash.
+             */
+            void finish() {
+                while (w < words) {
+                    test(0L);
+                }
+                if ((words & 1) == 1) {
+                    h1 ^= mixK1(Long.reverseBytes(k1));
+                }
+                long length = (long) words * Long.BYTES;
+                h1 ^= length;
+                h2 ^= length;
+                h1 += h2;
+                h2 += h1;
+                h1 = fmix64(h1);
+                h2 = fmix64(h2);
+                h1 += h2;
+                h2 += h1;
+            }
+        }
+
+        /**
+         * Gets the sharding Hasher for a filter.
+         * @param filter the filter.
+         * @return the sharding Hasher.
+         */
         public static Hasher asHasher(BloomFilter filter) {
+            Murmur3x64 murmur = MURMUR.get();
+            murmur.reset(BitMap.numberOfBitMaps(filter.getShape().getNumberOfBits()));
+            filter.forEachBitMap(murmur);
+            murmur.finish();
+            return new EnhancedDoubleHasher(murmur.h1, murmur.h2);
+        }
 
-            byte[] buf = new byte[ Long.BYTES * BitMap.numberOfBitMaps(filter.getShape().getNumberOfBits())];
-            ByteBuffer bb = ByteBuffer.wrap(buf);
-            filter.forEachBitMap( x -> {bb.putLong(x);return true;} );
-            long[] longs = MurmurHash3.hash128x64( buf );
-            return new EnhancedDoubleHasher(longs[0], longs[1]);
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
 
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
         }
     }
 }
\ No newline at end of file
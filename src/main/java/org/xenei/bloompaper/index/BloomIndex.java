@@ -1,5 +1,6 @@
 package org.xenei.bloompaper.index;
 
+import java.io.Closeable;
 import java.util.function.Consumer;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
@@ -8,7 +9,7 @@ import org.apache.commons.collections4.bloomfilter.Shape;
 /**
  * base class for a Bloom Index.  All BloomIndexes run by Test must implement this class.
  */
-public abstract class BloomIndex {
+public abstract class BloomIndex implements Closeable {
 
     /**
      * The shape of the filters being stored
@@ -35,6 +36,17 @@ public abstract class BloomIndex {
      */
     abstract public void add(BloomFilter filter);
 
+    /**
+     * Adds a set of Bloom filters to the index.  By default each filter is added in turn,
+     * implementations that can build their structure from the complete set should override it.
+     * @param filters the Bloom filters to add.
+     */
+    public void bulkLoad(BloomFilter[] filters) {
+        for (BloomFilter filter : filters) {
+            add(filter);
+        }
+    }
+
     /**
      * Deletes a Bloom filter from the index.
      * @param filter  The Bloom filter to delete.
@@ -47,6 +59,17 @@ public abstract class BloomIndex {
      * @param filter  The Bloom filter to count.
      */
     public final int count(BloomFilter filter) {
+        return doCount(filter);
+    }
+
+    /**
+     * Counts the number of matching Bloom filters in the index.  By default this counts the
+     * filters found by {@link #doSearch(Consumer, BloomFilter)}, implementations that can count
+     * without creating the matching filters should override it.
+     * @param filter the Bloom filter to count.
+     * @return the number of matching filters.
+     */
+    protected int doCount(BloomFilter filter) {
         BloomIndex.Incrementer incr = new BloomIndex.Incrementer();
         doSearch(incr, filter);
         return incr.count;
@@ -89,6 +112,14 @@ public abstract class BloomIndex {
      */
     abstract public int count();
 
+    /**
+     * Releases any resources held outside of the Java heap.  The index must not be used after it
+     * is closed.  By default does nothing.
+     */
+    @Override
+    public void close() {
+    }
+
     /**
      * Counts the number of filters returned by a search or count operation.
      *
@@ -7,20 +7,38 @@ import org.apache.commons.collections4.bloomfilter.Shape;
 
 /**
  * Plain ol' linear search.
- *
+ * <p>
+ * When created with an {@link ExactMatchIndex} deletes find the slot through the index and move
+ * the last filter into it.  See {@link BloomIndexExactArray}.
+ * </p>
  */
 public class BloomIndexArray extends BloomIndex {
     private BloomFilter[] index;
+    private final ExactMatchIndex<Integer> slots;
     private int idx;
 
     public BloomIndexArray(int population, Shape shape) {
+        this(population, shape, false);
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     * @param exact true if deletes use an {@link ExactMatchIndex}.
+     */
+    protected BloomIndexArray(int population, Shape shape, boolean exact) {
         super(population, shape);
         this.index = new BloomFilter[population];
+        this.slots = exact ? new ExactMatchIndex<Integer>() : null;
         this.idx = 0;
     }
 
     @Override
     public void add(BloomFilter filter) {
+        if (slots != null) {
+            slots.put(ExactMatchIndex.hash(filter), idx);
+        }
         index[idx++] = filter;
     }
 
@@ -28,6 +46,20 @@ public class BloomIndexArray extends BloomIndex {
     public boolean delete(BloomFilter filter) {
         BitUtils.BufferCompare comp = new BitUtils.BufferCompare(filter, BitUtils.BufferCompare.exact);
 
+        if (slots != null) {
+            Integer slot = slots.remove(ExactMatchIndex.hash(filter), i -> comp.matches(index[i]));
+            if (slot == null) {
+                return false;
+            }
+            int last = --idx;
+            if (slot != last) {
+                index[slot] = index[last];
+                slots.move(ExactMatchIndex.hash(index[slot]), last, slot);
+            }
+            index[last] = null;
+            return true;
+        }
+
         for (int i = idx - 1; i >= 0; i--) {
             if (comp.matches(index[i])) {
                 if (i < idx - 1) {
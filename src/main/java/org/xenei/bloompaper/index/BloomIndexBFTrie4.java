@@ -32,6 +32,11 @@ public class BloomIndexBFTrie4 extends BloomIndex {
         ;
     }
 
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        bftrie.bulkLoad(filters);
+    }
+
     @Override
     public String getName() {
         return "BF-Trie4";
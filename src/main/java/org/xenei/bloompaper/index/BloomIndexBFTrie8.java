@@ -4,7 +4,7 @@ import java.util.function.Consumer;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Shape;
-import org.xenei.bloompaper.index.bftrie.BFTrie4;
+import org.xenei.bloompaper.index.bftrie.BFTrie8;
 
 /**
  * Implementation of BTree Bytes sized search.
@@ -14,7 +14,7 @@ public class BloomIndexBFTrie8 extends BloomIndex {
     /**
      * The implementation of bftrie.
      */
-    private BFTrie4 bftrie;
+    private BFTrie8 bftrie;
 
     /**
      * Constructs the index
@@ -23,7 +23,7 @@ public class BloomIndexBFTrie8 extends BloomIndex {
      */
     public BloomIndexBFTrie8(int population, Shape shape) {
         super(population, shape);
-        this.bftrie = new BFTrie4(shape);
+        this.bftrie = new BFTrie8(shape);
     }
 
     @Override
@@ -32,6 +32,11 @@ public class BloomIndexBFTrie8 extends BloomIndex {
         ;
     }
 
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        bftrie.bulkLoad(filters);
+    }
+
     @Override
     public String getName() {
         return "BF-Trie8";
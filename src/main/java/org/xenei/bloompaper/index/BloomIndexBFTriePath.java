@@ -0,0 +1,59 @@
+package org.xenei.bloompaper.index;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.bftrie.PathCompressedBFTrie;
+
+/**
+ * Implementation of the path compressed BF-Trie with nibble sized chunks.
+ *
+ */
+public class BloomIndexBFTriePath extends BloomIndex {
+    /**
+     * The implementation of bftrie.
+     */
+    private PathCompressedBFTrie bftrie;
+
+    /**
+     * Constructs the index
+     * @param population the expected population.
+     * @param shape the Shape of the Bloom filters.
+     */
+    public BloomIndexBFTriePath(int population, Shape shape) {
+        super(population, shape);
+        this.bftrie = new PathCompressedBFTrie(shape, 4);
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        bftrie.add(filter);
+        ;
+    }
+
+    @Override
+    public String getName() {
+        return "BF-Trie4 Path";
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        return bftrie.remove(filter);
+    }
+
+    @Override
+    public int count() {
+        return bftrie.count();
+    }
+
+    public boolean find(BloomFilter filter) {
+        return bftrie.find(filter);
+    }
+
+    @Override
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        bftrie.search(consumer, filter);
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.xenei.bloompaper.index;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.bftrie.PermutedBFTrie;
+
+/**
+ * Implementation of the BF-Trie with nibble sized chunks over selectivity ordered bits.
+ *
+ */
+public class BloomIndexBFTriePermuted extends BloomIndex {
+    /**
+     * The maximum number of filters sampled to calculate the bit order.
+     */
+    private static final int SAMPLE_SIZE = 10000;
+
+    /**
+     * The implementation of bftrie.
+     */
+    private PermutedBFTrie bftrie;
+
+    /**
+     * Constructs the index
+     * @param population the expected population.
+     * @param shape the Shape of the Bloom filters.
+     */
+    public BloomIndexBFTriePermuted(int population, Shape shape) {
+        super(population, shape);
+        this.bftrie = new PermutedBFTrie(shape, 4, Math.min(population, SAMPLE_SIZE));
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        bftrie.add(filter);
+        ;
+    }
+
+    @Override
+    public String getName() {
+        return "BF-Trie4 Permuted";
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        return bftrie.remove(filter);
+    }
+
+    @Override
+    public int count() {
+        return bftrie.count();
+    }
+
+    public boolean find(BloomFilter filter) {
+        return bftrie.find(filter);
+    }
+
+    @Override
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        bftrie.search(consumer, filter);
+    }
+
+}
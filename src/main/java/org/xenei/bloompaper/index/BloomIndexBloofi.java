@@ -5,6 +5,7 @@ import java.util.function.Consumer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Shape;
 import org.xenei.bloompaper.index.bloofi.Bloofi;
+import org.xenei.bloompaper.index.bloofi.InnerNode;
 import org.xenei.bloompaper.index.bloofi.LeafNode;
 import org.xenei.bloompaper.index.bloofi.Node;
 
@@ -16,9 +17,19 @@ public class BloomIndexBloofi extends BloomIndex {
     private Bloofi bloofi;
 
     public BloomIndexBloofi(int population, Shape bloomFilterConfig) {
+        this(population, bloomFilterConfig, false);
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param bloomFilterConfig the Shape of the filters.
+     * @param exact true if the leaves are kept in an {@link ExactMatchIndex}.
+     */
+    protected BloomIndexBloofi(int population, Shape bloomFilterConfig, boolean exact) {
         super(population, bloomFilterConfig);
         Node.Counter.reset();
-        this.bloofi = new Bloofi(population, bloomFilterConfig);
+        this.bloofi = new Bloofi(population, bloomFilterConfig, InnerNode.DEFAULT_NODE_SIZE, exact);
     }
 
     @Override
@@ -26,6 +37,11 @@ public class BloomIndexBloofi extends BloomIndex {
         bloofi.add(filter);
     }
 
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        bloofi.bulkLoad(filters);
+    }
+
     @Override
     public String getName() {
         return "Bloofi Impl";
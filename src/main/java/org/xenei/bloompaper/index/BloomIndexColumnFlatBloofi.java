@@ -0,0 +1,53 @@
+package org.xenei.bloompaper.index;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.flatbloofi.ColumnFlatBloofi;
+
+/**
+ * Implementation of FlatBloofi with a column major matrix.
+ *
+ */
+public class BloomIndexColumnFlatBloofi extends BloomIndex {
+    private ColumnFlatBloofi bloofi;
+
+    public BloomIndexColumnFlatBloofi(int population, Shape shape) {
+        super(population, shape);
+        this.bloofi = new ColumnFlatBloofi(population, shape);
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        bloofi.add(filter);
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        return bloofi.delete(filter);
+    }
+
+    @Override
+    public void doSearch(Consumer<BloomFilter> result, BloomFilter filter) {
+        bloofi.search(result, filter);
+    }
+
+    @Override
+    protected int doCount(BloomFilter filter) {
+        int[] count = { 0 };
+        bloofi.searchSlots(idx -> count[0]++, filter);
+        return count[0];
+    }
+
+    @Override
+    public String getName() {
+        return "Flat Bloofi Column";
+    }
+
+    @Override
+    public int count() {
+        return bloofi.count();
+    }
+
+}
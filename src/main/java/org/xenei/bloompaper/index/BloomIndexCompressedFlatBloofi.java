@@ -0,0 +1,59 @@
+package org.xenei.bloompaper.index;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.flatbloofi.CompressedFlatBloofi;
+
+/**
+ * Implementation of FlatBloofi with compressed bitmap columns.
+ *
+ */
+public class BloomIndexCompressedFlatBloofi extends BloomIndex {
+    private CompressedFlatBloofi bloofi;
+
+    public BloomIndexCompressedFlatBloofi(int population, Shape shape) {
+        super(population, shape);
+        this.bloofi = new CompressedFlatBloofi(population, shape);
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        bloofi.add(filter);
+    }
+
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        super.bulkLoad(filters);
+        bloofi.runOptimize();
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        return bloofi.delete(filter);
+    }
+
+    @Override
+    public void doSearch(Consumer<BloomFilter> result, BloomFilter filter) {
+        bloofi.search(result, filter);
+    }
+
+    @Override
+    protected int doCount(BloomFilter filter) {
+        int[] count = { 0 };
+        bloofi.searchSlots(idx -> count[0]++, filter);
+        return count[0];
+    }
+
+    @Override
+    public String getName() {
+        return "Flat Bloofi Compressed";
+    }
+
+    @Override
+    public int count() {
+        return bloofi.count();
+    }
+
+}
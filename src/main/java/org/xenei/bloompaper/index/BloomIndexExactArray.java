@@ -0,0 +1,18 @@
+package org.xenei.bloompaper.index;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * Linear search over an array that finds the filter to delete through an {@link ExactMatchIndex}.
+ */
+public class BloomIndexExactArray extends BloomIndexArray {
+
+    public BloomIndexExactArray(int population, Shape shape) {
+        super(population, shape, true);
+    }
+
+    @Override
+    public String getName() {
+        return "Linear Exact";
+    }
+}
@@ -0,0 +1,18 @@
+package org.xenei.bloompaper.index;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * Bloofi that finds the leaf holding a filter through an {@link ExactMatchIndex}.
+ */
+public class BloomIndexExactBloofi extends BloomIndexBloofi {
+
+    public BloomIndexExactBloofi(int population, Shape shape) {
+        super(population, shape, true);
+    }
+
+    @Override
+    public String getName() {
+        return "Bloofi Exact";
+    }
+}
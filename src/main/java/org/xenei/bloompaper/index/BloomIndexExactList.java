@@ -0,0 +1,18 @@
+package org.xenei.bloompaper.index;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * Linear search over a List that finds the filter to delete through an {@link ExactMatchIndex}.
+ */
+public class BloomIndexExactList extends BloomIndexList {
+
+    public BloomIndexExactList(int population, Shape shape) {
+        super(population, shape, true);
+    }
+
+    @Override
+    public String getName() {
+        return "List Exact";
+    }
+}
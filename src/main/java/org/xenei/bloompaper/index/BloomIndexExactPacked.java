@@ -0,0 +1,18 @@
+package org.xenei.bloompaper.index;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * Linear search over packed bit maps that finds the filter to delete through an {@link ExactMatchIndex}.
+ */
+public class BloomIndexExactPacked extends BloomIndexPacked {
+
+    public BloomIndexExactPacked(int population, Shape shape) {
+        super(population, shape, true);
+    }
+
+    @Override
+    public String getName() {
+        return "Packed Exact";
+    }
+}
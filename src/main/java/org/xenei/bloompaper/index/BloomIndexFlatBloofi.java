@@ -14,8 +14,18 @@ public class BloomIndexFlatBloofi extends BloomIndex {
     private FlatBloofi bloofi;
 
     public BloomIndexFlatBloofi(int population, Shape shape) {
+        this(population, shape, new FlatBloofi(population, shape));
+    }
+
+    /**
+     * Constructor for implementations that configure the FlatBloofi.
+     * @param population the expected population.
+     * @param shape the Shape of the Bloom filters.
+     * @param bloofi the FlatBloofi to use.
+     */
+    protected BloomIndexFlatBloofi(int population, Shape shape, FlatBloofi bloofi) {
         super(population, shape);
-        this.bloofi = new FlatBloofi(population, shape);
+        this.bloofi = bloofi;
     }
 
     @Override
@@ -24,6 +34,11 @@ public class BloomIndexFlatBloofi extends BloomIndex {
         ;
     }
 
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        bloofi.bulkLoad(filters);
+    }
+
     @Override
     public boolean delete(BloomFilter filter) {
         return bloofi.delete(filter);
@@ -34,6 +49,13 @@ public class BloomIndexFlatBloofi extends BloomIndex {
         bloofi.search(result, filter);
     }
 
+    @Override
+    protected int doCount(BloomFilter filter) {
+        int[] count = { 0 };
+        bloofi.searchSlots(idx -> count[0]++, filter);
+        return count[0];
+    }
+
     @Override
     public String getName() {
         return "Flat Bloofi";
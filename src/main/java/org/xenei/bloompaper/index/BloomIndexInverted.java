@@ -0,0 +1,66 @@
+package org.xenei.bloompaper.index;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.inverted.InvertedIndex;
+
+/**
+ * Implementation that keeps a compressed posting list of filter ids for each bit.
+ *
+ * Intended for sparse filters, such as the GateKeeper filters, where each filter sets a few bits
+ * of a very wide Shape.
+ */
+public class BloomIndexInverted extends BloomIndex {
+    private InvertedIndex index;
+
+    public BloomIndexInverted(int population, Shape shape) {
+        super(population, shape);
+        this.index = new InvertedIndex(population, shape);
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        index.add(filter);
+    }
+
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        index.bulkLoad(filters);
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        return index.delete(filter);
+    }
+
+    @Override
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        index.searchWhile(bf -> {
+            consumer.accept(bf);
+            return true;
+        }, filter);
+    }
+
+    @Override
+    protected int doCount(BloomFilter filter) {
+        int[] count = { 0 };
+        index.searchIds(id -> {
+            count[0]++;
+            return true;
+        }, filter);
+        return count[0];
+    }
+
+    @Override
+    public String getName() {
+        return "Inverted";
+    }
+
+    @Override
+    public int count() {
+        return index.count();
+    }
+
+}
@@ -10,18 +10,36 @@ import org.apache.commons.collections4.bloomfilter.Shape;
 
 /**
  * Plain ol' linear search using a List.
- *
+ * <p>
+ * When created with an {@link ExactMatchIndex} deletes find the position through the index and
+ * move the last filter into it.  See {@link BloomIndexExactList}.
+ * </p>
  */
 public class BloomIndexList extends BloomIndex {
     private List<BloomFilter> index;
+    private final ExactMatchIndex<Integer> positions;
 
     public BloomIndexList(int population, Shape shape) {
+        this(population, shape, false);
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     * @param exact true if deletes use an {@link ExactMatchIndex}.
+     */
+    protected BloomIndexList(int population, Shape shape, boolean exact) {
         super(population, shape);
         this.index = new ArrayList<BloomFilter>(population);
+        this.positions = exact ? new ExactMatchIndex<Integer>() : null;
     }
 
     @Override
     public void add(BloomFilter filter) {
+        if (positions != null) {
+            positions.put(ExactMatchIndex.hash(filter), index.size());
+        }
         index.add(filter);
     }
 
@@ -29,6 +47,20 @@ public class BloomIndexList extends BloomIndex {
     public boolean delete(BloomFilter filter) {
         BitUtils.BufferCompare comp = new BitUtils.BufferCompare(filter, BitUtils.BufferCompare.exact);
 
+        if (positions != null) {
+            Integer position = positions.remove(ExactMatchIndex.hash(filter), i -> comp.matches(index.get(i)));
+            if (position == null) {
+                return false;
+            }
+            int last = index.size() - 1;
+            BloomFilter moved = index.remove(last);
+            if (position != last) {
+                index.set(position, moved);
+                positions.move(ExactMatchIndex.hash(moved), last, position);
+            }
+            return true;
+        }
+
         Iterator<BloomFilter> iter = index.iterator();
         while (iter.hasNext()) {
             if (comp.matches(iter.next())) {
@@ -0,0 +1,70 @@
+package org.xenei.bloompaper.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.flatbloofi.MappedFlatBloofi;
+
+/**
+ * Implementation of FlatBloofi that stores the index in a memory mapped temporary file.
+ *
+ */
+public class BloomIndexMappedFlatBloofi extends BloomIndex {
+    private MappedFlatBloofi bloofi;
+    private File file;
+
+    public BloomIndexMappedFlatBloofi(int population, Shape shape) {
+        super(population, shape);
+        try {
+            file = File.createTempFile("flatbloofi", ".idx");
+            file.deleteOnExit();
+            this.bloofi = new MappedFlatBloofi(file.toPath(), population, shape);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        bloofi.add(filter);
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        return bloofi.delete(filter);
+    }
+
+    @Override
+    public void doSearch(Consumer<BloomFilter> result, BloomFilter filter) {
+        bloofi.search(result, filter);
+    }
+
+    /**
+     * Closes the mapped file and deletes it.
+     */
+    @Override
+    public void close() {
+        try {
+            bloofi.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Flat Bloofi Mapped";
+    }
+
+    @Override
+    public int count() {
+        return bloofi.count();
+    }
+
+}
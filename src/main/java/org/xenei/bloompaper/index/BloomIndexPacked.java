@@ -0,0 +1,70 @@
+package org.xenei.bloompaper.index;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * Linear search over packed bit maps.
+ * <p>
+ * See {@link BloomIndexExactPacked} for the variant that finds deletes through an
+ * {@link ExactMatchIndex}.
+ * </p>
+ */
+public class BloomIndexPacked extends BloomIndex {
+    private PackedFilters index;
+
+    public BloomIndexPacked(int population, Shape shape) {
+        this(population, shape, false);
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     * @param exact true if deletes use an {@link ExactMatchIndex}.
+     */
+    protected BloomIndexPacked(int population, Shape shape, boolean exact) {
+        super(population, shape);
+        this.index = new PackedFilters(shape, population, exact);
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        index.add(filter);
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        int i = index.indexOf(filter);
+        if (i > -1) {
+            index.remove(i);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return "Packed";
+    }
+
+    @Override
+    public int count() {
+        return index.size();
+    }
+
+    @Override
+    public void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        index.search(i -> consumer.accept(index.get(i)), filter);
+    }
+
+    @Override
+    protected int doCount(BloomFilter filter) {
+        int[] count = { 0 };
+        index.search(i -> count[0]++, filter);
+        return count[0];
+    }
+
+}
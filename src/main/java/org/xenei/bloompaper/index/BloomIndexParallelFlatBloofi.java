@@ -0,0 +1,29 @@
+package org.xenei.bloompaper.index;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.flatbloofi.FlatBloofi;
+
+/**
+ * Implementation of FlatBloofi that splits the search across the common ForkJoinPool.
+ *
+ */
+public class BloomIndexParallelFlatBloofi extends BloomIndexFlatBloofi {
+
+    public BloomIndexParallelFlatBloofi(int population, Shape shape) {
+        super(population, shape, parallel(population, shape));
+    }
+
+    private static FlatBloofi parallel(int population, Shape shape) {
+        FlatBloofi bloofi = new FlatBloofi(population, shape);
+        bloofi.setParallel(ForkJoinPool.commonPool(), FlatBloofi.DEFAULT_PARALLEL_THRESHOLD);
+        return bloofi;
+    }
+
+    @Override
+    public String getName() {
+        return "Flat Bloofi Parallel";
+    }
+
+}
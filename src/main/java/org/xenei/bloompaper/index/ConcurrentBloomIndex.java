@@ -0,0 +1,112 @@
+package org.xenei.bloompaper.index;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+
+/**
+ * A BloomIndex that makes another BloomIndex safe for use by multiple threads.
+ * <p>
+ * Any number of threads may search or count concurrently. Adds and deletes are exclusive and
+ * wait for the active readers to finish. The wrapped index must not modify its structure during
+ * a search, which is true of all the indexes in this package.
+ * </p><p>
+ * Reads are not performed optimistically because the wrapped indexes are not safe to traverse
+ * while they are being modified. A ReentrantReadWriteLock is used rather than a StampedLock because
+ * new readers wait behind a queued writer, so a steady stream of searches can not starve the writers.
+ * </p>
+ */
+public class ConcurrentBloomIndex extends BloomIndex {
+    private final BloomIndex wrapped;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    /**
+     * Constructor.
+     * @param wrapped the index to make thread safe.  It must not be used directly after this call.
+     */
+    public ConcurrentBloomIndex(BloomIndex wrapped) {
+        super(wrapped.population, wrapped.shape);
+        this.wrapped = wrapped;
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        writeLock.lock();
+        try {
+            wrapped.add(filter);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void bulkLoad(BloomFilter[] filters) {
+        writeLock.lock();
+        try {
+            wrapped.bulkLoad(filters);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        writeLock.lock();
+        try {
+            return wrapped.delete(filter);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        readLock.lock();
+        try {
+            wrapped.doSearch(consumer, filter);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    protected int doCount(BloomFilter filter) {
+        readLock.lock();
+        try {
+            return wrapped.doCount(filter);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            wrapped.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Concurrent " + wrapped.getName();
+    }
+
+    @Override
+    public int count() {
+        readLock.lock();
+        try {
+            return wrapped.count();
+        } finally {
+            readLock.unlock();
+        }
+    }
+}
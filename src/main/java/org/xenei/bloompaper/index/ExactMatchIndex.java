@@ -0,0 +1,250 @@
+package org.xenei.bloompaper.index;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+
+/**
+ * A side index that maps the exact bits of a Bloom filter to where the filter is stored.
+ * <p>
+ * Only a 64-bit content hash and the location are kept.  The hashes are stored in a primitive
+ * open addressing table so an entry costs a {@code long} and a reference.  Different bit maps may
+ * share a hash, so lookups take a predicate that confirms the match against the filter stored at
+ * the location.  The same bit map may be stored more than once, each time with its own location.
+ * </p><p>
+ * Zero words do not change the hash so bit maps of different lengths with the same bits match.
+ * </p>
+ * @param <T> the type of the location.
+ */
+public class ExactMatchIndex<T> {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] locations;
+    private int mask;
+    private int size;
+
+    /**
+     * Accumulates the hash of a stream of bit maps.
+     */
+    private static class Hash implements LongPredicate {
+        private long hash = SEED;
+        private int word;
+
+        @Override
+        public boolean test(long bitMap) {
+            if (bitMap != 0) {
+                hash = Long.rotateLeft(hash ^ BitUtils.fmix64(bitMap + SEED * (word + 1)), 27) * 5 + 0x52dce729;
+            }
+            word++;
+            return true;
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    public ExactMatchIndex() {
+        keys = new long[INITIAL_CAPACITY];
+        locations = new Object[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+        size = 0;
+    }
+
+    /**
+     * Calculates the 64-bit content hash of a bit map.  Zero words do not change the hash.
+     * @param bitMap the bit map to hash.
+     * @return the hash.
+     */
+    public static long hash(long[] bitMap) {
+        return hash(bitMap, 0, bitMap.length);
+    }
+
+    /**
+     * Calculates the 64-bit content hash of a range of a packed bit map array.
+     * @param bits the packed bit maps.
+     * @param offset the first word of the bit map.
+     * @param length the number of words in the bit map.
+     * @return the hash.
+     */
+    public static long hash(long[] bits, int offset, int length) {
+        Hash hash = new Hash();
+        for (int i = 0; i < length; i++) {
+            hash.test(bits[offset + i]);
+        }
+        return BitUtils.fmix64(hash.hash);
+    }
+
+    /**
+     * Calculates the 64-bit content hash of a filter without copying its bit maps.
+     * @param filter the filter to hash.
+     * @return the hash.
+     */
+    public static long hash(BloomFilter filter) {
+        Hash hash = new Hash();
+        filter.forEachBitMap(hash);
+        return BitUtils.fmix64(hash.hash);
+    }
+
+    /**
+     * Gets the number of locations in the index.
+     * @return the number of locations.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Adds a location for a bit map.
+     * @param hash the hash of the bit map of the stored filter.
+     * @param location the location of the filter, not null.
+     */
+    public void put(long hash, T location) {
+        Objects.requireNonNull(location, "location");
+        if ((size + 1) * 3 > locations.length * 2) {
+            resize();
+        }
+        int i = slot(hash);
+        while (locations[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = hash;
+        locations[i] = location;
+        size++;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldLocations = locations;
+        keys = new long[oldKeys.length * 2];
+        locations = new Object[oldLocations.length * 2];
+        mask = locations.length - 1;
+        for (int j = 0; j < oldLocations.length; j++) {
+            if (oldLocations[j] != null) {
+                int i = slot(oldKeys[j]);
+                while (locations[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                locations[i] = oldLocations[j];
+            }
+        }
+    }
+
+    /**
+     * Finds the table slot of a location that has the hash and passes the test.
+     * @return the slot or -1 if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    private int find(long hash, Predicate<? super T> matches) {
+        for (int i = slot(hash); locations[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == hash && matches.test((T) locations[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a location of a bit map.
+     * @param hash the hash of the bit map to look for.
+     * @param matches tests that the filter at a location has the bit map.
+     * @return a location of the bit map or null if it is not in the index.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long hash, Predicate<? super T> matches) {
+        int i = find(hash, matches);
+        return i == -1 ? null : (T) locations[i];
+    }
+
+    /**
+     * Removes a location of a bit map.
+     * @param hash the hash of the bit map to remove.
+     * @param matches tests that the filter at a location has the bit map.
+     * @return the location that was removed or null if the bit map is not in the index.
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long hash, Predicate<? super T> matches) {
+        int i = find(hash, matches);
+        if (i == -1) {
+            return null;
+        }
+        T location = (T) locations[i];
+        delete(i);
+        return location;
+    }
+
+    /**
+     * Removes a specific location of a bit map.
+     * @param hash the hash of the bit map to remove.
+     * @param location the location to remove.
+     * @return true if the location was removed.
+     */
+    public boolean remove(long hash, T location) {
+        int i = find(hash, location::equals);
+        if (i == -1) {
+            return false;
+        }
+        delete(i);
+        return true;
+    }
+
+    /**
+     * Empties a table slot and moves later entries of the probe sequence back so that no lookup
+     * stops early.
+     */
+    private void delete(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (locations[j] == null) {
+                break;
+            }
+            int home = slot(keys[j]);
+            // the entry at j stays if its home slot lies cyclically in (i, j].
+            if (i <= j ? (i < home && home <= j) : (i < home || home <= j)) {
+                continue;
+            }
+            keys[i] = keys[j];
+            locations[i] = locations[j];
+            i = j;
+        }
+        locations[i] = null;
+        size--;
+    }
+
+    /**
+     * Changes a location of a bit map.  Used when a stored filter moves.
+     * @param hash the hash of the bit map of the filter that moved.
+     * @param from the old location.
+     * @param to the new location, not null.
+     * @return true if the location was changed.
+     */
+    public boolean move(long hash, T from, T to) {
+        Objects.requireNonNull(to, "to");
+        int i = find(hash, from::equals);
+        if (i == -1) {
+            return false;
+        }
+        locations[i] = to;
+        return true;
+    }
+
+    /**
+     * Removes all the locations.
+     */
+    public void clear() {
+        Arrays.fill(locations, null);
+        size = 0;
+    }
+}
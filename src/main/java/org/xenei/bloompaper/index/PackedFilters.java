@@ -0,0 +1,172 @@
+package org.xenei.bloompaper.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * A list of Bloom filters of a single Shape with the bit maps packed into one contiguous array.
+ * <p>
+ * The bit maps for entry {@code i} are stored at {@code bits[i * stride]} through
+ * {@code bits[(i + 1) * stride - 1]} where {@code stride} is the number of bit maps for the Shape.
+ * Containment and equality checks are tight loops over the array without calling the filters.
+ * The filters themselves are kept in a parallel array so that a match returns the filter that was
+ * added without creating a new object.
+ * </p><p>
+ * Removing an entry moves the last entry into its place so the order of the entries is not preserved.
+ * Optionally the position of each entry is kept in an {@link ExactMatchIndex} so that
+ * {@link #indexOf(BloomFilter)} does not scan the list.
+ * </p>
+ */
+public class PackedFilters {
+    private final int stride;
+    private long[] bits;
+    private BloomFilter[] filters;
+    private final ExactMatchIndex<Integer> positions;
+    private int size;
+
+    /**
+     * Constructor.  {@link #indexOf(BloomFilter)} scans the list.
+     * @param shape the Shape of the filters.
+     * @param capacity the initial number of filters.
+     */
+    public PackedFilters(Shape shape, int capacity) {
+        this(shape, capacity, false);
+    }
+
+    /**
+     * Constructor.
+     * @param shape the Shape of the filters.
+     * @param capacity the initial number of filters.
+     * @param exact true if the positions are kept in an {@link ExactMatchIndex}.
+     */
+    public PackedFilters(Shape shape, int capacity, boolean exact) {
+        this.stride = BitMap.numberOfBitMaps(shape.getNumberOfBits());
+        capacity = Math.max(1, capacity);
+        this.bits = new long[capacity * stride];
+        this.filters = new BloomFilter[capacity];
+        this.positions = exact ? new ExactMatchIndex<Integer>() : null;
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of filters in the list.
+     * @return the number of filters.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the filter at a position.
+     * @param i the position.
+     * @return the filter.
+     */
+    public BloomFilter get(int i) {
+        return filters[i];
+    }
+
+    /**
+     * Adds a filter to the end of the list.
+     * @param filter the filter to add.
+     */
+    public void add(BloomFilter filter) {
+        if (size == filters.length) {
+            int capacity = size * 2;
+            bits = Arrays.copyOf(bits, capacity * stride);
+            filters = Arrays.copyOf(filters, capacity);
+        }
+        long[] bitMaps = filter.asBitMapArray();
+        System.arraycopy(bitMaps, 0, bits, size * stride, Math.min(stride, bitMaps.length));
+        if (positions != null) {
+            positions.put(ExactMatchIndex.hash(bits, size * stride, stride), size);
+        }
+        filters[size++] = filter;
+    }
+
+    /**
+     * Removes the filter at a position.  The last filter is moved into the position.
+     * @param i the position to remove.
+     */
+    public void remove(int i) {
+        int last = --size;
+        if (positions != null) {
+            positions.remove(ExactMatchIndex.hash(bits, i * stride, stride), i);
+            if (i != last) {
+                positions.move(ExactMatchIndex.hash(bits, last * stride, stride), last, i);
+            }
+        }
+        if (i != last) {
+            System.arraycopy(bits, last * stride, bits, i * stride, stride);
+            filters[i] = filters[last];
+        }
+        Arrays.fill(bits, last * stride, (last + 1) * stride, 0L);
+        filters[last] = null;
+    }
+
+    /**
+     * Finds the position of a filter with exactly the same bits as the target.
+     * @param filter the filter to match.
+     * @return the position of the matching filter or -1 if there is no match.
+     */
+    public int indexOf(BloomFilter filter) {
+        long[] target = Arrays.copyOf(filter.asBitMapArray(), stride);
+        if (positions != null) {
+            Integer position = positions.get(ExactMatchIndex.hash(target), i -> equalsAt(i, target));
+            return position == null ? -1 : position;
+        }
+        for (int i = 0; i < size; i++) {
+            if (equalsAt(i, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines if the entry at a position has exactly the bits of the target.
+     * @param i the position.
+     * @param target the bit maps of the target, {@code stride} long.
+     */
+    private boolean equalsAt(int i, long[] target) {
+        int offset = i * stride;
+        int w = 0;
+        while (w < stride && bits[offset + w] == target[w]) {
+            w++;
+        }
+        return w == stride;
+    }
+
+    /**
+     * Reports the position of every filter that contains the target.
+     * @param consumer the consumer of the positions.
+     * @param filter the filter to search for.
+     */
+    public void search(IntConsumer consumer, BloomFilter filter) {
+        long[] target = filter.asBitMapArray();
+        int limit = Math.min(stride, target.length);
+        // only the non zero words of the target need to be checked.
+        int[] words = new int[limit];
+        long[] values = new long[limit];
+        int n = 0;
+        for (int w = 0; w < limit; w++) {
+            if (target[w] != 0) {
+                words[n] = w;
+                values[n++] = target[w];
+            }
+        }
+
+        for (int i = 0, offset = 0; i < size; i++, offset += stride) {
+            int j = 0;
+            while (j < n && (bits[offset + words[j]] & values[j]) == values[j]) {
+                j++;
+            }
+            if (j == n) {
+                consumer.accept(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.xenei.bloompaper.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+
+/**
+ * Searches a set of candidate partitions, such as shards or buckets, on an Executor.
+ * <p>
+ * When the results are ordered each partition gathers its matches and the matches are passed to the
+ * consumer on the calling thread in partition order, exactly as a sequential search would. When the
+ * results are not ordered each partition passes its matches directly to the consumer as they are
+ * found and calls to the consumer are synchronized so that the consumer does not need to be thread
+ * safe.
+ * </p>
+ */
+public class ParallelSearch {
+    /**
+     * The shared executor returned by {@link #virtualThreads()}.
+     */
+    private static final Executor VIRTUAL_THREADS = createVirtualThreads();
+
+    private final Executor executor;
+    private final boolean ordered;
+
+    /**
+     * Constructor.
+     * @param executor the executor to search the partitions on.
+     * @param ordered true if the matches must be reported in partition order.
+     */
+    public ParallelSearch(Executor executor, boolean ordered) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor may not be null");
+        }
+        this.executor = executor;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Searches the candidates.  If there is only one candidate it is searched on the calling thread.
+     * @param <T> the type of the partition.
+     * @param candidates the partitions to search.
+     * @param searcher searches a partition and passes the matches to a consumer.
+     * @param consumer the consumer of the matching filters.
+     */
+    public <T> void search(List<T> candidates, BiConsumer<T, Consumer<BloomFilter>> searcher,
+            Consumer<BloomFilter> consumer) {
+        if (candidates.size() == 1) {
+            searcher.accept(candidates.get(0), consumer);
+            return;
+        }
+        if (ordered) {
+            List<CompletableFuture<List<BloomFilter>>> futures = new ArrayList<CompletableFuture<List<BloomFilter>>>(
+                    candidates.size());
+            for (T candidate : candidates) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    List<BloomFilter> found = new ArrayList<BloomFilter>();
+                    searcher.accept(candidate, found::add);
+                    return found;
+                }, executor));
+            }
+            for (CompletableFuture<List<BloomFilter>> future : futures) {
+                future.join().forEach(consumer);
+            }
+        } else {
+            Consumer<BloomFilter> synced = bf -> {
+                synchronized (consumer) {
+                    consumer.accept(bf);
+                }
+            };
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[candidates.size()];
+            int i = 0;
+            for (T candidate : candidates) {
+                futures[i++] = CompletableFuture.runAsync(() -> searcher.accept(candidate, synced), executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+    }
+
+    /**
+     * Gets a shared executor that starts a virtual thread for each task.  Virtual threads are available
+     * from JDK 21, on earlier JDKs the common ForkJoinPool is returned.
+     * @return an executor for parallel searches.
+     */
+    public static Executor virtualThreads() {
+        return VIRTUAL_THREADS;
+    }
+
+    private static Executor createVirtualThreads() {
+        try {
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+}
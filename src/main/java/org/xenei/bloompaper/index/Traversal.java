@@ -0,0 +1,128 @@
+package org.xenei.bloompaper.index;
+
+import java.util.Arrays;
+
+/**
+ * An iterative tree traversal that keeps the nodes still to be visited on an explicit frontier
+ * rather than on the Java stack.
+ * <p>
+ * Each thread reuses a single frontier so a traversal does not allocate once the frontier has grown
+ * to the width of the trees it walks.  A traversal started by a visitor while the thread's frontier
+ * is in use gets a frontier of its own.
+ * </p>
+ *
+ * @param <N> the type of the tree nodes.
+ */
+public final class Traversal<N> {
+
+    /**
+     * The order the nodes are visited in.
+     */
+    public enum Order {
+        /** Visit the most recently pushed node first. */
+        DEPTH_FIRST,
+        /** Visit the least recently pushed node first. */
+        BREADTH_FIRST
+    }
+
+    /**
+     * Visits a node during a traversal.
+     *
+     * @param <N> the type of the tree nodes.
+     */
+    @FunctionalInterface
+    public interface Visitor<N> {
+        /**
+         * Visits the node and pushes the children that should be visited onto the frontier.
+         * @param node the node to visit.
+         * @param frontier the frontier to push children onto.
+         * @return false to stop the traversal.
+         */
+        boolean visit(N node, Traversal<N> frontier);
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final ThreadLocal<Traversal<Object>> LOCAL = ThreadLocal.withInitial(Traversal::new);
+
+    private Object[] frontier;
+    private int head;
+    private int size;
+    private boolean busy;
+
+    private Traversal() {
+        frontier = new Object[INITIAL_CAPACITY];
+        head = 0;
+        size = 0;
+        busy = false;
+    }
+
+    /**
+     * Traverses the tree below the root.
+     * @param <N> the type of the tree nodes.
+     * @param order the order to visit the nodes in.
+     * @param root the first node to visit.
+     * @param visitor the visitor that is called for each node.
+     * @return true if all the nodes were visited, false if the visitor stopped the traversal.
+     */
+    @SuppressWarnings("unchecked")
+    public static <N> boolean run(Order order, N root, Visitor<N> visitor) {
+        Traversal<N> traversal = (Traversal<N>) LOCAL.get();
+        if (traversal.busy) {
+            traversal = new Traversal<N>();
+        }
+        traversal.busy = true;
+        try {
+            traversal.push(root);
+            while (traversal.size > 0) {
+                if (!visitor.visit(traversal.next(order), traversal)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            traversal.clear();
+        }
+    }
+
+    /**
+     * Adds a node to the frontier.
+     * @param node the node to visit.
+     */
+    public void push(N node) {
+        if (size == frontier.length) {
+            Object[] grown = new Object[frontier.length * 2];
+            int tail = frontier.length - head;
+            System.arraycopy(frontier, head, grown, 0, tail);
+            System.arraycopy(frontier, 0, grown, tail, head);
+            frontier = grown;
+            head = 0;
+        }
+        frontier[(head + size) & (frontier.length - 1)] = node;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private N next(Order order) {
+        int idx;
+        if (order == Order.DEPTH_FIRST) {
+            idx = (head + size - 1) & (frontier.length - 1);
+        } else {
+            idx = head;
+            head = (head + 1) & (frontier.length - 1);
+        }
+        size--;
+        N result = (N) frontier[idx];
+        frontier[idx] = null;
+        return result;
+    }
+
+    private void clear() {
+        if (size > 0) {
+            Arrays.fill(frontier, null);
+        }
+        head = 0;
+        size = 0;
+        busy = false;
+    }
+}
@@ -1,13 +1,18 @@
 package org.xenei.bloompaper.index.bftrie;
 
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 
 public interface BFTrie {
 
     public int getWidth();
 
+    public void add(BloomFilter filter);
+
     public boolean remove(BloomFilter filter);
 
     public int count();
@@ -16,7 +21,47 @@ public interface BFTrie {
 
     public void search(Consumer<BloomFilter> consumer, BloomFilter filter);
 
+    /**
+     * Searches for the filters that contain the filter until the results return false.
+     * @param results the predicate that accepts the matching filters and returns false to stop.
+     * @param filter the filter to search for.
+     * @return true if the search completed, false if the results stopped it.
+     */
+    public boolean searchWhile(Predicate<BloomFilter> results, BloomFilter filter);
+
+    /**
+     * Sets the order the trie nodes are visited in during a search.
+     * @param order the traversal order.
+     */
+    public void setTraversalOrder(Traversal.Order order);
+
     public int getIndex(long[] buffer, int level);
 
-    public int[] lookup(long[] buffer, int level);
+    /**
+     * Gets the chunk values that are supersets of the chunk of the buffer at the level.
+     * @param buffer the bit maps of the filter being searched for.
+     * @param level the level of the BFTrie.
+     * @return a bit map with a bit set for each superset chunk value.
+     */
+    public long[] lookup(long[] buffer, int level);
+
+    /**
+     * Extracts the chunk of the buffer at the level.
+     * @param buffer the bit maps of the filter.
+     * @param level the level of the BFTrie.
+     * @param width the number of bits in a chunk.
+     * @return the chunk value.
+     */
+    public static int chunk(long[] buffer, int level, int width) {
+        int startBit = level * width;
+
+        int idx = BitMap.getLongIndex(startBit);
+        // buffer may be short if upper values are zero
+        if (idx >= buffer.length) {
+            return 0;
+        }
+
+        int shift = startBit % Long.SIZE;
+        return (int) ((buffer[idx] >>> shift) & ((1L << width) - 1));
+    }
 }
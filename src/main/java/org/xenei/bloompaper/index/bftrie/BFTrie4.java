@@ -1,10 +1,11 @@
 package org.xenei.bloompaper.index.bftrie;
 
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
-import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.Traversal;
 
 public class BFTrie4 implements BFTrie {
     public static final int[][] nibbleTable = { { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0xA, 0xB, 0xC, 0xD, 0xE, 0xF },
@@ -12,8 +13,10 @@ public class BFTrie4 implements BFTrie {
         { 4, 5, 6, 7, 0xC, 0xD, 0xE, 0xF }, { 5, 7, 0xD, 0xF }, { 6, 7, 0xE, 0xF }, { 7, 0xF },
         { 8, 9, 0xA, 0xB, 0xC, 0xD, 0xE, 0xF }, { 9, 0xB, 0xD, 0xF }, { 0xA, 0xB, 0xE, 0xF }, { 0xB, 0xF },
         { 0xC, 0xD, 0xE, 0xF }, { 0xD, 0xF }, { 0xE, 0xF }, { 0xF }, };
+    static final long[][] supersetMasks = InnerNode.supersetMasks(nibbleTable);
 
     private InnerNode root;
+    private Traversal.Order order = Traversal.Order.DEPTH_FIRST;
     private int count;
 
     public BFTrie4(Shape shape) {
@@ -26,11 +29,28 @@ public class BFTrie4 implements BFTrie {
         return count;
     }
 
+    @Override
     public void add(BloomFilter filter) {
         root.add(this, filter, filter.asBitMapArray());
         count++;
     }
 
+    /**
+     * Adds a set of filters.  An empty trie is built in a single pass from the filters sorted
+     * into chunk order, otherwise the filters are added one at a time.
+     * @param filters the filters to add.
+     */
+    public void bulkLoad(BloomFilter[] filters) {
+        if (count == 0) {
+            root.bulkLoad(filters);
+            count = filters.length;
+        } else {
+            for (BloomFilter filter : filters) {
+                add(filter);
+            }
+        }
+    }
+
     @Override
     public boolean find(BloomFilter filter) {
         return root.find(filter.asBitMapArray());
@@ -47,10 +67,21 @@ public class BFTrie4 implements BFTrie {
 
     @Override
     public void search(Consumer<BloomFilter> consumer, BloomFilter filter) {
-        // estimate result size as % of key space.
-        // int f = shape.getNumberOfBits() - filter.cardinality();
-        // int initSize = count * f / shape.getNumberOfBits();
-        root.search(this, consumer, filter.asBitMapArray());
+        searchWhile(bf -> {
+            consumer.accept(bf);
+            return true;
+        }, filter);
+    }
+
+    @Override
+    public boolean searchWhile(Predicate<BloomFilter> results, BloomFilter filter) {
+        long[] buffer = filter.asBitMapArray();
+        return Traversal.<Node>run(order, root, (node, frontier) -> node.search(this, frontier, results, buffer));
+    }
+
+    @Override
+    public void setTraversalOrder(Traversal.Order order) {
+        this.order = order;
     }
 
     @Override
@@ -66,23 +97,12 @@ public class BFTrie4 implements BFTrie {
      */
     @Override
     public int getIndex(long[] buffer, int level) {
-        int startBit = level * 4;
-
-        int idx = BitMap.getLongIndex(startBit);
-        // buffer may be short if upper values are zero
-        if (idx >= buffer.length) {
-            return (byte) 0;
-        }
-
-        int shift = startBit % Long.SIZE;
-        long mask = (0xFL << shift);
-        long value = buffer[idx] & mask;
-        return (byte) ((value >> shift) & 0x0F);
+        return BFTrie.chunk(buffer, level, 4);
     }
 
     @Override
-    public int[] lookup(long[] buffer, int level) {
-        return nibbleTable[getIndex(buffer, level)];
+    public long[] lookup(long[] buffer, int level) {
+        return supersetMasks[getIndex(buffer, level)];
     }
 
 }
@@ -1,13 +1,17 @@
 package org.xenei.bloompaper.index.bftrie;
 
+import java.util.Arrays;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.Traversal;
 
 public class BFTrie8 implements BFTrie {
-    public static int[][] byteTable;
+    public static final int[][] byteTable = new int[256][];
+    static final long[][] supersetMasks;
 
     static {
         for (int i = 0; i < 256; i++) {
@@ -19,11 +23,13 @@ public class BFTrie8 implements BFTrie {
                     accum[counter++] = j;
                 }
             }
-            byteTable[i] = accum;
+            byteTable[i] = Arrays.copyOf(accum, counter);
         }
+        supersetMasks = InnerNode.supersetMasks(byteTable);
     }
 
     private InnerNode root;
+    private Traversal.Order order = Traversal.Order.DEPTH_FIRST;
     private int count;
 
     public BFTrie8(Shape shape) {
@@ -41,11 +47,28 @@ public class BFTrie8 implements BFTrie {
         return count;
     }
 
+    @Override
     public void add(BloomFilter filter) {
         root.add(this, filter, filter.asBitMapArray());
         count++;
     }
 
+    /**
+     * Adds a set of filters.  An empty trie is built in a single pass from the filters sorted
+     * into chunk order, otherwise the filters are added one at a time.
+     * @param filters the filters to add.
+     */
+    public void bulkLoad(BloomFilter[] filters) {
+        if (count == 0) {
+            root.bulkLoad(filters);
+            count = filters.length;
+        } else {
+            for (BloomFilter filter : filters) {
+                add(filter);
+            }
+        }
+    }
+
     @Override
     public boolean find(BloomFilter filter) {
         return root.find(filter.asBitMapArray());
@@ -62,10 +85,21 @@ public class BFTrie8 implements BFTrie {
 
     @Override
     public void search(Consumer<BloomFilter> consumer, BloomFilter filter) {
-        // estimate result size as % of key space.
-        // int f = shape.getNumberOfBits() - filter.cardinality();
-        // int initSize = count * f / shape.getNumberOfBits();
-        root.search(this, consumer, filter.asBitMapArray());
+        searchWhile(bf -> {
+            consumer.accept(bf);
+            return true;
+        }, filter);
+    }
+
+    @Override
+    public boolean searchWhile(Predicate<BloomFilter> results, BloomFilter filter) {
+        long[] buffer = filter.asBitMapArray();
+        return Traversal.<Node>run(order, root, (node, frontier) -> node.search(this, frontier, results, buffer));
+    }
+
+    @Override
+    public void setTraversalOrder(Traversal.Order order) {
+        this.order = order;
     }
 
     /**
@@ -76,21 +110,22 @@ public class BFTrie8 implements BFTrie {
      */
     @Override
     public int getIndex(long[] buffer, int level) {
+        int startBit = level * Byte.SIZE;
 
-        int idx = BitMap.getLongIndex(level);
+        int idx = BitMap.getLongIndex(startBit);
         // buffer may be short if upper values are zero
         if (idx >= buffer.length) {
             return 0;
         }
 
-        int shift = level % Long.SIZE;
+        int shift = startBit % Long.SIZE;
         long mask = (0xFFL << shift);
         long value = buffer[idx] & mask;
         return (int) ((value >> shift) & 0xFF);
     }
 
     @Override
-    public int[] lookup(long[] buffer, int level) {
-        return byteTable[getIndex(buffer, level)];
+    public long[] lookup(long[] buffer, int level) {
+        return supersetMasks[getIndex(buffer, level)];
     }
 }
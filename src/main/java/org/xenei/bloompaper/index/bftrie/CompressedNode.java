@@ -0,0 +1,155 @@
+package org.xenei.bloompaper.index.bftrie;
+
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
+
+/**
+ * An inner node of the {@link PathCompressedBFTrie}.
+ * <p>
+ * Children are stored as in {@link InnerNode} but a child may be at any level below this one.  All
+ * filters under a child have zero chunks between the level of this node and the level of the
+ * child.
+ * </p>
+ */
+public class CompressedNode implements Node {
+    private static final Node[] EMPTY = new Node[0];
+
+    private final long[] occupied;
+    private Node[] nodes;
+    private final int level;
+    private final PathCompressedBFTrie trie;
+
+    public CompressedNode(int level, PathCompressedBFTrie trie) {
+        this.level = level;
+        this.trie = trie;
+        occupied = new long[BitMap.numberOfBitMaps(1 << trie.getWidth())];
+        nodes = EMPTY;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    private boolean isOccupied(int chunk) {
+        return (occupied[BitMap.getLongIndex(chunk)] & BitMap.getLongBit(chunk)) != 0;
+    }
+
+    /**
+     * Gets the position of the chunk in the dense node array.
+     */
+    private int position(int chunk) {
+        int idx = BitMap.getLongIndex(chunk);
+        int result = Long.bitCount(occupied[idx] & (BitMap.getLongBit(chunk) - 1));
+        for (int i = 0; i < idx; i++) {
+            result += Long.bitCount(occupied[i]);
+        }
+        return result;
+    }
+
+    private void insert(int chunk, Node node) {
+        int pos = position(chunk);
+        Node[] newNodes = new Node[nodes.length + 1];
+        System.arraycopy(nodes, 0, newNodes, 0, pos);
+        System.arraycopy(nodes, pos, newNodes, pos + 1, nodes.length - pos);
+        newNodes[pos] = node;
+        nodes = newNodes;
+        occupied[BitMap.getLongIndex(chunk)] |= BitMap.getLongBit(chunk);
+    }
+
+    private void delete(int chunk, int pos) {
+        if (nodes.length == 1) {
+            nodes = EMPTY;
+        } else {
+            Node[] newNodes = new Node[nodes.length - 1];
+            System.arraycopy(nodes, 0, newNodes, 0, pos);
+            System.arraycopy(nodes, pos + 1, newNodes, pos, newNodes.length - pos);
+            nodes = newNodes;
+        }
+        occupied[BitMap.getLongIndex(chunk)] &= ~BitMap.getLongBit(chunk);
+    }
+
+    @Override
+    public void add(BFTrie trie, BloomFilter filter, long[] buffer) {
+        int chunk = trie.getIndex(buffer, level);
+        int next = this.trie.nextLevel(buffer, level + 1);
+        if (!isOccupied(chunk)) {
+            insert(chunk, this.trie.createNode(next));
+        }
+        int pos = position(chunk);
+        Node child = nodes[pos];
+        if (next < this.trie.levelOf(child)) {
+            // the filter has a non zero chunk in the skipped run so split the edge.
+            CompressedNode split = new CompressedNode(next, this.trie);
+            split.insert(0, child);
+            nodes[pos] = split;
+            child = split;
+        }
+        child.add(trie, filter, buffer);
+    }
+
+    @Override
+    public boolean find(long[] buffer) {
+        int chunk = trie.getIndex(buffer, level);
+        if (isOccupied(chunk)) {
+            Node child = nodes[position(chunk)];
+            return trie.nextLevel(buffer, level + 1) >= trie.levelOf(child) && child.find(buffer);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(long[] buffer) {
+        int chunk = trie.getIndex(buffer, level);
+        if (isOccupied(chunk)) {
+            int pos = position(chunk);
+            Node child = nodes[pos];
+            if (trie.nextLevel(buffer, level + 1) >= trie.levelOf(child) && child.remove(buffer)) {
+                if (child.isEmpty()) {
+                    delete(chunk, pos);
+                } else if (child instanceof CompressedNode) {
+                    CompressedNode compressed = (CompressedNode) child;
+                    // a node with only a zero chunk child is part of a zero run.
+                    if (compressed.nodes.length == 1 && compressed.isOccupied(0)) {
+                        nodes[pos] = compressed.nodes[0];
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    @Override
+    public boolean search(BFTrie trie, Traversal<Node> frontier, Predicate<BloomFilter> results, long[] buffer) {
+        long[] supersets = trie.lookup(buffer, level);
+        int next = this.trie.nextLevel(buffer, level + 1);
+        int base = 0;
+        for (int i = 0; i < occupied.length; i++) {
+            long candidates = occupied[i] & supersets[i];
+            while (candidates != 0) {
+                long lowest = candidates & -candidates;
+                Node child = nodes[base + Long.bitCount(occupied[i] & (lowest - 1))];
+                if (next >= this.trie.levelOf(child)) {
+                    frontier.push(child);
+                }
+                candidates ^= lowest;
+            }
+            base += Long.bitCount(occupied[i]);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompressedNode d:%s", level);
+    }
+
+}
@@ -1,13 +1,26 @@
 package org.xenei.bloompaper.index.bftrie;
 
-import java.util.function.Consumer;
+import java.util.Arrays;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 import org.apache.commons.collections4.bloomfilter.Shape;
 
+/**
+ * An inner node of the BFTrie.
+ * <p>
+ * The children are stored in a dense array ordered by chunk value.  The {@code occupied} bit map
+ * has one bit for each possible chunk value and the position of a child in the dense array is the
+ * number of occupied bits below its chunk value.  Empty chunks take no space.
+ * </p>
+ */
 public class InnerNode implements Node {
-    private final Node[] nodes;
+    private static final Node[] EMPTY = new Node[0];
+
+    private final long[] occupied;
+    private Node[] nodes;
     private final int level;
     private final int maxDepth;
     private final Shape shape;
@@ -18,67 +31,191 @@ public class InnerNode implements Node {
         this.shape = shape;
         this.trie = trie;
         this.maxDepth = shape.getNumberOfBits() / trie.getWidth();
-        nodes = new Node[(1 << trie.getWidth())];
+        occupied = new long[BitMap.numberOfBitMaps(1 << trie.getWidth())];
+        nodes = EMPTY;
+    }
+
+    /**
+     * Converts a table of chunk values into bit maps with the bit for each chunk value set.
+     * @param table the table of superset chunk values indexed by chunk value.
+     * @return the table of superset bit maps indexed by chunk value.
+     */
+    static long[][] supersetMasks(int[][] table) {
+        long[][] result = new long[table.length][BitMap.numberOfBitMaps(table.length)];
+        for (int i = 0; i < table.length; i++) {
+            for (int j : table[i]) {
+                result[i][BitMap.getLongIndex(j)] |= BitMap.getLongBit(j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A filter and its bit maps sorted into chunk order for a bulk load.
+     */
+    private static final class Entry {
+        final BloomFilter filter;
+        final long[] buffer;
+
+        Entry(BloomFilter filter) {
+            this.filter = filter;
+            this.buffer = filter.asBitMapArray();
+        }
+    }
+
+    /**
+     * Compares bit maps by their chunks in level order.
+     */
+    private static int compareChunks(long[] a, long[] b, int width) {
+        int length = Math.max(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            long x = i < a.length ? a[i] : 0L;
+            long y = i < b.length ? b[i] : 0L;
+            long diff = x ^ y;
+            if (diff != 0) {
+                int shift = (Long.numberOfTrailingZeros(diff) / width) * width;
+                long mask = (1L << width) - 1;
+                return Long.compare((x >>> shift) & mask, (y >>> shift) & mask);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Builds the trie below this empty node from a set of filters.  The filters are sorted into
+     * chunk order so each node is built in a single pass with its children created in the order of
+     * the dense child array.
+     * @param filters the filters to load.
+     */
+    void bulkLoad(BloomFilter[] filters) {
+        int width = trie.getWidth();
+        Entry[] entries = new Entry[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            entries[i] = new Entry(filters[i]);
+        }
+        Arrays.sort(entries, (a, b) -> compareChunks(a.buffer, b.buffer, width));
+        build(entries, 0, entries.length);
+    }
+
+    private void build(Entry[] entries, int from, int to) {
+        Node[] children = new Node[1 << trie.getWidth()];
+        int used = 0;
+        int i = from;
+        while (i < to) {
+            int chunk = trie.getIndex(entries[i].buffer, level);
+            int j = i + 1;
+            while (j < to && trie.getIndex(entries[j].buffer, level) == chunk) {
+                j++;
+            }
+            if ((level + 1) == maxDepth) {
+                LeafNode leaf = new LeafNode(maxDepth * trie.getWidth() < shape.getNumberOfBits());
+                for (int k = i; k < j; k++) {
+                    leaf.add(trie, entries[k].filter, entries[k].buffer);
+                }
+                children[used++] = leaf;
+            } else {
+                InnerNode inner = new InnerNode(level + 1, shape, trie);
+                inner.build(entries, i, j);
+                children[used++] = inner;
+            }
+            occupied[BitMap.getLongIndex(chunk)] |= BitMap.getLongBit(chunk);
+            i = j;
+        }
+        nodes = Arrays.copyOf(children, used);
     }
 
     public boolean isBaseNode() {
         return level + 1 == maxDepth;
     }
 
+    /**
+     * Gets the child nodes that exist in chunk value order.
+     * @return the child nodes.
+     */
     public Node[] getLeafNodes() {
         return nodes;
     }
 
     /**
-     * Gets the nibble Info for the nibble specified by the filter.
-     * @param filter the BloomFilter to get the nibble from.
+     * Gets the chunk of the buffer for the level.
+     * @param buffer the bit maps to get the chunk from.
      * @param level the level of the BFTrie we are at.
-     * @return the NibbleInfo for that level
+     * @return the chunk value for that level
      */
-    public byte getChunk(long[] buffer, int level) {
-        int startBit = level * trie.getWidth();
+    public int getChunk(long[] buffer, int level) {
+        int width = trie.getWidth();
+        int startBit = level * width;
 
         int idx = BitMap.getLongIndex(startBit);
         // buffer may be short if upper values are zero
         if (idx >= buffer.length) {
-            return (byte) 0;
+            return 0;
         }
 
         int shift = startBit % Long.SIZE;
-        long mask = (0xFL << shift);
-        long value = buffer[idx] & mask;
-        return (byte) ((value >> shift) & 0x0F);
+        return (int) ((buffer[idx] >>> shift) & ((1L << width) - 1));
+    }
+
+    private boolean isOccupied(int chunk) {
+        return (occupied[BitMap.getLongIndex(chunk)] & BitMap.getLongBit(chunk)) != 0;
+    }
+
+    /**
+     * Gets the position of the chunk in the dense node array.
+     */
+    private int position(int chunk) {
+        int idx = BitMap.getLongIndex(chunk);
+        int result = Long.bitCount(occupied[idx] & (BitMap.getLongBit(chunk) - 1));
+        for (int i = 0; i < idx; i++) {
+            result += Long.bitCount(occupied[i]);
+        }
+        return result;
     }
 
     @Override
     public void add(BFTrie trie, BloomFilter filter, long[] buffer) {
         int chunk = trie.getIndex(buffer, level);
-        if (nodes[chunk] == null) {
+        int pos = position(chunk);
+        if (!isOccupied(chunk)) {
+            Node node;
             if ((level + 1) == maxDepth) {
-                nodes[chunk] = new LeafNode(maxDepth == (shape.getNumberOfBits() / trie.getWidth()));
+                // only check the entries if the levels do not cover all the bits.
+                node = new LeafNode(maxDepth * trie.getWidth() < shape.getNumberOfBits());
             } else {
-                nodes[chunk] = new InnerNode(level + 1, shape, trie);
+                node = new InnerNode(level + 1, shape, trie);
             }
+            Node[] newNodes = new Node[nodes.length + 1];
+            System.arraycopy(nodes, 0, newNodes, 0, pos);
+            System.arraycopy(nodes, pos, newNodes, pos + 1, nodes.length - pos);
+            newNodes[pos] = node;
+            nodes = newNodes;
+            occupied[BitMap.getLongIndex(chunk)] |= BitMap.getLongBit(chunk);
         }
-        nodes[chunk].add(trie, filter, buffer);
+        nodes[pos].add(trie, filter, buffer);
     }
 
     @Override
     public boolean find(long[] buffer) {
-        byte nibble = getChunk(buffer, level);
-        if (nodes[nibble] != null) {
-            return nodes[nibble].find(buffer);
-        }
-        return false;
+        int chunk = trie.getIndex(buffer, level);
+        return isOccupied(chunk) && nodes[position(chunk)].find(buffer);
     }
 
     @Override
     public boolean remove(long[] buffer) {
-        byte nibble = getChunk(buffer, level);
-        if (nodes[nibble] != null) {
-            if (nodes[nibble].remove(buffer)) {
-                if (nodes[nibble].isEmpty()) {
-                    nodes[nibble] = null;
+        int chunk = trie.getIndex(buffer, level);
+        if (isOccupied(chunk)) {
+            int pos = position(chunk);
+            if (nodes[pos].remove(buffer)) {
+                if (nodes[pos].isEmpty()) {
+                    if (nodes.length == 1) {
+                        nodes = EMPTY;
+                    } else {
+                        Node[] newNodes = new Node[nodes.length - 1];
+                        System.arraycopy(nodes, 0, newNodes, 0, pos);
+                        System.arraycopy(nodes, pos + 1, newNodes, pos, newNodes.length - pos);
+                        nodes = newNodes;
+                    }
+                    occupied[BitMap.getLongIndex(chunk)] &= ~BitMap.getLongBit(chunk);
                 }
                 return true;
             }
@@ -88,22 +225,23 @@ public class InnerNode implements Node {
 
     @Override
     public boolean isEmpty() {
-        for (int i = 0; i < nodes.length; i++) {
-            if (nodes[i] != null) {
-                return false;
-            }
-        }
-        return true;
+        return nodes.length == 0;
     }
 
     @Override
-    public void search(BFTrie trie, Consumer<BloomFilter> consumer, long[] buffer) {
-        int[] nodeIdxs = trie.lookup(buffer, level);
-        for (int i : nodeIdxs) {
-            if (nodes[i] != null) {
-                nodes[i].search(trie, consumer, buffer);
+    public boolean search(BFTrie trie, Traversal<Node> frontier, Predicate<BloomFilter> results, long[] buffer) {
+        long[] supersets = trie.lookup(buffer, level);
+        int base = 0;
+        for (int i = 0; i < occupied.length; i++) {
+            long candidates = occupied[i] & supersets[i];
+            while (candidates != 0) {
+                long lowest = candidates & -candidates;
+                frontier.push(nodes[base + Long.bitCount(occupied[i] & (lowest - 1))]);
+                candidates ^= lowest;
             }
+            base += Long.bitCount(occupied[i]);
         }
+        return true;
     }
 
     @Override
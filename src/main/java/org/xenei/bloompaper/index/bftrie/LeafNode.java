@@ -2,10 +2,11 @@ package org.xenei.bloompaper.index.bftrie;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BitMapProducer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 
 public class LeafNode implements Node {
     private final List<BloomFilter> lst;
@@ -42,13 +43,14 @@ public class LeafNode implements Node {
     }
 
     @Override
-    public void search(BFTrie trie, Consumer<BloomFilter> result, long[] buffer) {
-        if (checkEntries) {
-            BitMapProducer bmp = BitMapProducer.fromBitMapArray(buffer);
-            lst.stream().filter(b -> b.contains(bmp)).forEach(result);
-        } else {
-            lst.stream().forEach(result);
+    public boolean search(BFTrie trie, Traversal<Node> frontier, Predicate<BloomFilter> result, long[] buffer) {
+        BitMapProducer bmp = checkEntries ? BitMapProducer.fromBitMapArray(buffer) : null;
+        for (BloomFilter b : lst) {
+            if ((bmp == null || b.contains(bmp)) && !result.test(b)) {
+                return false;
+            }
         }
+        return true;
     }
 
     @Override
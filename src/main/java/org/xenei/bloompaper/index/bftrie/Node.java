@@ -1,8 +1,9 @@
 package org.xenei.bloompaper.index.bftrie;
 
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 
 /**
  * A BFTrie node
@@ -22,6 +23,15 @@ public interface Node {
 
     public boolean isEmpty();
 
-    public void search(BFTrie trie, Consumer<BloomFilter> results, long[] buffer);
+    /**
+     * Visits the node during a search.  Inner nodes push the children that may contain matches
+     * onto the frontier, leaf nodes pass their matching filters to the results.
+     * @param trie the trie being searched.
+     * @param frontier the frontier of nodes still to visit.
+     * @param results the predicate that accepts the matching filters and returns false to stop.
+     * @param buffer the bit maps of the filter being searched for.
+     * @return false if the results stopped the search.
+     */
+    public boolean search(BFTrie trie, Traversal<Node> frontier, Predicate<BloomFilter> results, long[] buffer);
 
 }
@@ -0,0 +1,135 @@
+package org.xenei.bloompaper.index.bftrie;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.Traversal;
+import org.xenei.bloompaper.index.BitUtils;
+
+/**
+ * A BFTrie that does not create levels for runs of zero chunks.
+ * <p>
+ * Each {@link CompressedNode} branches on the chunk at its level and a child may be at any deeper
+ * level.  The chunks between a node and its child are zero for every filter under the child, so a
+ * filter only creates a node for each of its non zero chunks.  A search follows an edge only when
+ * the target has no bits in the skipped chunks as a zero stored chunk only contains a zero chunk.
+ * </p>
+ */
+public class PathCompressedBFTrie implements BFTrie {
+
+    private final int width;
+    private final int maxDepth;
+    private final long[][] supersetMasks;
+    private final CompressedNode root;
+    private Traversal.Order order = Traversal.Order.DEPTH_FIRST;
+    private int count;
+
+    /**
+     * Constructor.
+     * @param shape the shape of the filters.
+     * @param width the number of bits in a chunk, either 4 or 8.
+     */
+    public PathCompressedBFTrie(Shape shape, int width) {
+        if (width == 4) {
+            supersetMasks = BFTrie4.supersetMasks;
+        } else if (width == Byte.SIZE) {
+            supersetMasks = BFTrie8.supersetMasks;
+        } else {
+            throw new IllegalArgumentException("Width must be 4 or 8 not " + width);
+        }
+        this.width = width;
+        this.maxDepth = shape.getNumberOfBits() / width;
+        this.root = new CompressedNode(0, this);
+        this.count = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        root.add(this, filter, filter.asBitMapArray());
+        count++;
+    }
+
+    @Override
+    public boolean find(BloomFilter filter) {
+        return root.find(filter.asBitMapArray());
+    }
+
+    @Override
+    public boolean remove(BloomFilter filter) {
+        if (root.remove(filter.asBitMapArray())) {
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void search(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        searchWhile(bf -> {
+            consumer.accept(bf);
+            return true;
+        }, filter);
+    }
+
+    @Override
+    public boolean searchWhile(Predicate<BloomFilter> results, BloomFilter filter) {
+        long[] buffer = filter.asBitMapArray();
+        return Traversal.<Node>run(order, root, (node, frontier) -> node.search(this, frontier, results, buffer));
+    }
+
+    @Override
+    public void setTraversalOrder(Traversal.Order order) {
+        this.order = order;
+    }
+
+    @Override
+    public int getIndex(long[] buffer, int level) {
+        return BFTrie.chunk(buffer, level, width);
+    }
+
+    @Override
+    public long[] lookup(long[] buffer, int level) {
+        return supersetMasks[getIndex(buffer, level)];
+    }
+
+    /**
+     * Gets the first level at or after the level that has a non zero chunk.
+     * @param buffer the bit maps of the filter.
+     * @param level the first level to check.
+     * @return the level of the first non zero chunk or the maximum depth if there is none.
+     */
+    int nextLevel(long[] buffer, int level) {
+        int bit = BitUtils.nextSet(buffer, level * width);
+        return bit < 0 ? maxDepth : Math.min(maxDepth, bit / width);
+    }
+
+    /**
+     * Gets the level of a node.  Leaf nodes are at the maximum depth.
+     * @param node the node.
+     * @return the level of the node.
+     */
+    int levelOf(Node node) {
+        return node instanceof CompressedNode ? ((CompressedNode) node).getLevel() : maxDepth;
+    }
+
+    /**
+     * Creates the node for a level.
+     * @param level the level of the node.
+     * @return a leaf node at the maximum depth, a compressed node otherwise.
+     */
+    Node createNode(int level) {
+        return level == maxDepth ? new LeafNode(true) : new CompressedNode(level, this);
+    }
+}
@@ -0,0 +1,185 @@
+package org.xenei.bloompaper.index.bftrie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.xenei.bloompaper.index.Traversal;
+
+/**
+ * A BFTrie that orders the bits of the filters so that the most selective bits are used by the
+ * first levels.
+ * <p>
+ * The number of stored filters that have each bit set is tracked as filters are added and removed.
+ * Once {@code sampleSize} filters have been added the bits are sorted from least to most frequently
+ * set and the trie is rebuilt with the filters permuted into that order.  Queries are permuted the
+ * same way, so a target with a rarely set bit prunes most of the trie in the first few levels.
+ * The permuted space is padded to a whole number of chunks so that the levels cover every bit and
+ * the leaves do not need to check their entries.
+ * </p>
+ */
+public class PermutedBFTrie implements BFTrie {
+
+    private final int width;
+    private final int sampleSize;
+    private final Shape shape;
+    private final Shape permutedShape;
+    private final long[][] supersetMasks;
+    private final int[] bitCounts;
+    private int[] permutation;
+    private boolean sampled;
+    private InnerNode root;
+    private int count;
+    private Traversal.Order order = Traversal.Order.DEPTH_FIRST;
+
+    /**
+     * Constructor.
+     * @param shape the shape of the filters.
+     * @param width the number of bits in a chunk, either 4 or 8.
+     * @param sampleSize the number of filters to add before the permutation is calculated.
+     */
+    public PermutedBFTrie(Shape shape, int width, int sampleSize) {
+        if (width == 4) {
+            supersetMasks = BFTrie4.supersetMasks;
+        } else if (width == Byte.SIZE) {
+            supersetMasks = BFTrie8.supersetMasks;
+        } else {
+            throw new IllegalArgumentException("Width must be 4 or 8 not " + width);
+        }
+        this.width = width;
+        this.sampleSize = sampleSize;
+        this.shape = shape;
+        int chunks = (shape.getNumberOfBits() + width - 1) / width;
+        this.permutedShape = Shape.fromKM(shape.getNumberOfHashFunctions(), chunks * width);
+        this.bitCounts = new int[shape.getNumberOfBits()];
+        this.permutation = IntStream.range(0, shape.getNumberOfBits()).toArray();
+        this.sampled = false;
+        this.root = new InnerNode(0, permutedShape, this);
+        this.count = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Gets the position of each bit in the permuted space.
+     * @return the permutation indexed by bit.
+     */
+    public int[] getPermutation() {
+        return permutation.clone();
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        root.add(this, filter, permute(filter));
+        filter.forEachIndex(i -> {
+            bitCounts[i]++;
+            return true;
+        });
+        count++;
+        if (!sampled && count >= sampleSize) {
+            repermute();
+        }
+    }
+
+    @Override
+    public boolean find(BloomFilter filter) {
+        return root.find(permute(filter));
+    }
+
+    @Override
+    public boolean remove(BloomFilter filter) {
+        if (root.remove(permute(filter))) {
+            filter.forEachIndex(i -> {
+                bitCounts[i]--;
+                return true;
+            });
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the permutation from the current bit frequencies and rebuilds the trie.  This is
+     * called automatically when the sample size is reached and may be called again after the
+     * contents of the trie have changed.
+     */
+    public void repermute() {
+        List<BloomFilter> filters = new ArrayList<BloomFilter>(count);
+        search(filters::add, new SimpleBloomFilter(shape));
+
+        int[] order = IntStream.range(0, bitCounts.length).boxed()
+                .sorted(Comparator.comparingInt((Integer i) -> bitCounts[i]).thenComparingInt(i -> i))
+                .mapToInt(Integer::intValue).toArray();
+        int[] newPermutation = new int[order.length];
+        for (int position = 0; position < order.length; position++) {
+            newPermutation[order[position]] = position;
+        }
+        permutation = newPermutation;
+        sampled = true;
+
+        root = new InnerNode(0, permutedShape, this);
+        for (BloomFilter filter : filters) {
+            root.add(this, filter, permute(filter));
+        }
+    }
+
+    /**
+     * Creates the bit maps of the filter in the permuted space.
+     * @param filter the filter to permute.
+     * @return the permuted bit maps.
+     */
+    private long[] permute(BloomFilter filter) {
+        long[] result = new long[BitMap.numberOfBitMaps(permutedShape.getNumberOfBits())];
+        filter.forEachIndex(i -> {
+            int bit = permutation[i];
+            result[BitMap.getLongIndex(bit)] |= BitMap.getLongBit(bit);
+            return true;
+        });
+        return result;
+    }
+
+    @Override
+    public void search(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        searchWhile(bf -> {
+            consumer.accept(bf);
+            return true;
+        }, filter);
+    }
+
+    @Override
+    public boolean searchWhile(Predicate<BloomFilter> results, BloomFilter filter) {
+        long[] buffer = permute(filter);
+        return Traversal.<Node>run(order, root, (node, frontier) -> node.search(this, frontier, results, buffer));
+    }
+
+    @Override
+    public void setTraversalOrder(Traversal.Order order) {
+        this.order = order;
+    }
+
+    @Override
+    public int getIndex(long[] buffer, int level) {
+        return BFTrie.chunk(buffer, level, width);
+    }
+
+    @Override
+    public long[] lookup(long[] buffer, int level) {
+        return supersetMasks[getIndex(buffer, level)];
+    }
+}
@@ -1,15 +1,23 @@
 package org.xenei.bloompaper.index.bloofi;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.BitUtils;
+import org.xenei.bloompaper.index.ExactMatchIndex;
+import org.xenei.bloompaper.index.Traversal;
 
 /**
  * Traditional Bloofi implementation.
- *
+ * <p>
+ * Optionally the leaf holding each distinct filter is kept in an {@link ExactMatchIndex}.  Equal
+ * filters then share a leaf and adds of duplicates and deletes go straight to the leaf.
+ * </p>
  */
 public class Bloofi {
 
@@ -17,7 +25,11 @@ public class Bloofi {
      * The root node of the Bloofi  tree
      */
     private InnerNode root;
+    private final ExactMatchIndex<LeafNode> leaves;
     private int count;
+    private final Shape shape;
+    private final int nodeSize;
+    private Traversal.Order order = Traversal.Order.DEPTH_FIRST;
 
     /**
      * Constructs a bloofi index.
@@ -25,7 +37,96 @@ public class Bloofi {
      * @param shape the Shape of the filters.
      */
     public Bloofi(int limit, Shape shape) {
-        root = new InnerNode(null, shape);
+        this(limit, shape, InnerNode.DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Constructs a bloofi index.
+     * @param limit the number of expected filters.
+     * @param shape the Shape of the filters.
+     * @param nodeSize the number of children an inner node holds before it splits.
+     */
+    public Bloofi(int limit, Shape shape, int nodeSize) {
+        this(limit, shape, nodeSize, false);
+    }
+
+    /**
+     * Constructs a bloofi index.
+     * @param limit the number of expected filters.
+     * @param shape the Shape of the filters.
+     * @param nodeSize the number of children an inner node holds before it splits.
+     * @param exact true if the leaves are kept in an {@link ExactMatchIndex}.
+     */
+    public Bloofi(int limit, Shape shape, int nodeSize, boolean exact) {
+        if (nodeSize < 4) {
+            throw new IllegalArgumentException("nodeSize must be at least 4");
+        }
+        this.shape = shape;
+        this.nodeSize = nodeSize;
+        root = new InnerNode(null, shape, nodeSize);
+        leaves = exact ? new ExactMatchIndex<LeafNode>() : null;
+    }
+
+    /**
+     * Compares bit maps as unsigned numbers so that filters that share their high bits are adjacent.
+     */
+    private static int compareBitMaps(long[] a, long[] b) {
+        for (int i = Math.max(a.length, b.length) - 1; i >= 0; i--) {
+            int result = Long.compareUnsigned(i < a.length ? a[i] : 0L, i < b.length ? b[i] : 0L);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds a set of filters.  An empty index is built from the bottom up: the filters are sorted
+     * so that similar filters are adjacent, equal filters share a leaf, and each level is packed into
+     * inner nodes that are one short of splitting.  Otherwise the filters are added one at a time.
+     * @param filters the filters to add.
+     */
+    public void bulkLoad(BloomFilter[] filters) {
+        if (count != 0 || filters.length == 0) {
+            for (BloomFilter filter : filters) {
+                add(filter);
+            }
+            return;
+        }
+        long[][] bitMaps = new long[filters.length][];
+        Integer[] order = new Integer[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            bitMaps[i] = filters[i].asBitMapArray();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareBitMaps(bitMaps[a], bitMaps[b]));
+
+        Node[] level = new Node[filters.length];
+        int size = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (size > 0 && compareBitMaps(bitMaps[order[i - 1]], bitMaps[order[i]]) == 0) {
+                level[size - 1].add(filters[order[i]]);
+            } else {
+                level[size++] = new LeafNode(null, filters[order[i]]);
+                if (leaves != null) {
+                    leaves.put(ExactMatchIndex.hash(bitMaps[order[i]]), (LeafNode) level[size - 1]);
+                }
+            }
+        }
+
+        int fill = nodeSize - 1;
+        do {
+            int parents = (size + fill - 1) / fill;
+            Node[] next = new Node[parents];
+            for (int p = 0; p < parents; p++) {
+                next[p] = new InnerNode(shape, nodeSize, level, (int) ((long) size * p / parents),
+                        (int) ((long) size * (p + 1) / parents));
+            }
+            level = next;
+            size = parents;
+        } while (size > 1);
+        root = (InnerNode) level[0];
+        count = filters.length;
     }
 
     /**
@@ -34,19 +135,52 @@ public class Bloofi {
      */
     public void add(BloomFilter candidate) {
         count++;
-        root.add(candidate);
+        long[] bitMap = candidate.asBitMapArray();
+        if (leaves == null) {
+            root.insert(candidate, bitMap);
+        } else {
+            long hash = ExactMatchIndex.hash(bitMap);
+            LeafNode leaf = leaves.get(hash, matcher(candidate));
+            if (leaf != null) {
+                leaf.add(candidate);
+                return;
+            }
+            leaves.put(hash, root.insert(candidate, bitMap));
+        }
 
         while (root.getParent() != null) {
             root = root.getParent();
         }
     }
 
+    /**
+     * Creates a test for the leaves that hold exactly the bits of the candidate.
+     */
+    private static Predicate<LeafNode> matcher(BloomFilter candidate) {
+        BitUtils.BufferCompare comp = new BitUtils.BufferCompare(candidate, BitUtils.BufferCompare.exact);
+        return leaf -> comp.matches(leaf.getFilter());
+    }
+
     public boolean delete(BloomFilter candidate) {
-        if (root.remove(candidate)) {
-            count--;
-            return true;
+        long[] bitMap = candidate.asBitMapArray();
+        if (leaves == null) {
+            if (root.remove(candidate, bitMap)) {
+                count--;
+                return true;
+            }
+            return false;
+        }
+        long hash = ExactMatchIndex.hash(bitMap);
+        LeafNode leaf = leaves.get(hash, matcher(candidate));
+        if (leaf == null) {
+            return false;
         }
-        return false;
+        leaf.remove(candidate, bitMap);
+        if (leaf.isEmpty()) {
+            leaves.remove(hash, leaf);
+        }
+        count--;
+        return true;
     }
 
     /**
@@ -64,7 +198,7 @@ public class Bloofi {
      */
     public List<BloomFilter> get(BloomFilter filter) {
         List<BloomFilter> retval = new ArrayList<BloomFilter>();
-        root.search(retval::add, filter);
+        search(retval::add, filter);
         return retval;
     }
 
@@ -74,7 +208,29 @@ public class Bloofi {
      * @return the number of filters that match.
      */
     public void search(Consumer<BloomFilter> result, BloomFilter filter) {
-        root.search(result, filter);
+        searchWhile(bf -> {
+            result.accept(bf);
+            return true;
+        }, filter);
+    }
+
+    /**
+     * Searches for the filters in the index that match the filter until the results return false.
+     * @param results the predicate that accepts the matching filters and returns false to stop.
+     * @param filter the filter to match.
+     * @return true if the search completed, false if the results stopped it.
+     */
+    public boolean searchWhile(Predicate<BloomFilter> results, BloomFilter filter) {
+        long[] bitMap = filter.asBitMapArray();
+        return Traversal.<Node>run(order, root, (node, frontier) -> node.search(frontier, results, filter, bitMap));
+    }
+
+    /**
+     * Sets the order the tree nodes are visited in during a search.
+     * @param order the traversal order.
+     */
+    public void setTraversalOrder(Traversal.Order order) {
+        this.order = order;
     }
 
 }
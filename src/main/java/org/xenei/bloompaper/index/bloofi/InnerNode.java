@@ -1,15 +1,15 @@
 package org.xenei.bloompaper.index.bloofi;
 
 import java.util.Arrays;
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
-import org.apache.commons.collections4.bloomfilter.ArrayCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
-import org.apache.commons.collections4.bloomfilter.CountingBloomFilter;
-import org.apache.commons.collections4.bloomfilter.SetOperations;
 import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
 import org.xenei.bloompaper.index.BitUtils;
-import org.xenei.bloompaper.index.PseudoCountingBloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 
 /**
  * An inner node for the Bloofi tree.
@@ -18,14 +18,20 @@ import org.xenei.bloompaper.index.PseudoCountingBloomFilter;
 public class InnerNode implements Node {
 
     /**
-     * Number of buckets on the node.
+     * Default number of buckets on the node.
      */
-    private static final int NODE_SIZE = 16;
+    public static final int DEFAULT_NODE_SIZE = 16;
 
     /**
-     * The counting bloom filter for all the filters below.
+     * Number of buckets on the node.  The node splits when all the buckets are used.
      */
-    private CountingBloomFilter filter;
+    private final int nodeSize;
+
+    /**
+     * The union of all the filters below as a packed bit map.  A bit is cleared by recomputing
+     * the union from the children when a child is removed.
+     */
+    private long[] summary;
 
     /**
      * The buckets of inner nodes.
@@ -59,18 +65,136 @@ public class InnerNode implements Node {
      * @param shape  the Shape of the Bloom filters that will be stored.
      */
     public InnerNode(InnerNode parent, Shape shape) {
+        this(parent, shape, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Constructs an inner node.
+     *
+     * @param parent   the parent of this node (may be null).
+     * @param shape    the Shape of the Bloom filters that will be stored.
+     * @param nodeSize the number of buckets on the node.
+     */
+    public InnerNode(InnerNode parent, Shape shape, int nodeSize) {
         this.id = Node.Counter.nextId();
         this.shape = shape;
-        filter = new ArrayCountingBloomFilter(shape);
-        buckets = new Node[NODE_SIZE];
+        this.nodeSize = nodeSize;
+        summary = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
+        buckets = new Node[nodeSize];
         used = 0;
         this.parent = parent;
     }
 
+    /**
+     * Constructs a root inner node over a range of nodes that have no parent.  Used to build the
+     * tree from the bottom up.
+     *
+     * @param shape    the Shape of the Bloom filters that will be stored.
+     * @param nodeSize the number of buckets on the node.
+     * @param children the nodes to place in the buckets.
+     * @param from     the index of the first child.
+     * @param to       the index after the last child.
+     */
+    InnerNode(Shape shape, int nodeSize, Node[] children, int from, int to) {
+        this(null, shape, nodeSize);
+        for (int i = from; i < to; i++) {
+            Node child = children[i];
+            buckets[used++] = child;
+            child.setParent(this);
+            merge(summary, bitMapOf(child));
+        }
+    }
+
+    /**
+     * Gets the number of buckets on this node.
+     * @return the number of buckets.
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Gets the bit map of a child node.  The summary of an inner node is returned directly and
+     * must not be modified.
+     * @param child the child node.
+     * @return the bit map of the child.
+     */
+    private static long[] bitMapOf(Node child) {
+        return child instanceof InnerNode ? ((InnerNode) child).summary : child.getFilter().asBitMapArray();
+    }
+
+    private static int cardinality(long[] bitMap) {
+        int result = 0;
+        for (long word : bitMap) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    /**
+     * Determines if the union contains all the bits of the target.
+     */
+    private static boolean contains(long[] union, long[] target) {
+        for (int i = 0; i < target.length; i++) {
+            long word = i < union.length ? union[i] : 0L;
+            if ((target[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the bits that are in the candidate but not in the union.
+     */
+    private static int growth(long[] union, long[] candidate) {
+        int result = 0;
+        for (int i = 0; i < candidate.length; i++) {
+            long word = i < union.length ? union[i] : 0L;
+            result += Long.bitCount(candidate[i] & ~word);
+        }
+        return result;
+    }
+
+    private static void merge(long[] union, long[] candidate) {
+        for (int i = 0; i < candidate.length; i++) {
+            union[i] |= candidate[i];
+        }
+    }
+
+    /**
+     * Merges the bit map of a filter into the summary of this node and all its ancestors.
+     * @param bitMap the bit map to merge.
+     */
+    void mergeUp(long[] bitMap) {
+        InnerNode node = this;
+        while (node != null) {
+            merge(node.summary, bitMap);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Recomputes the summary of this node from its children.  If the summary changed the parent
+     * is recomputed as well.
+     */
+    private void recount() {
+        long[] union = new long[summary.length];
+        for (int i = 0; i < used; i++) {
+            merge(union, bitMapOf(buckets[i]));
+        }
+        if (!Arrays.equals(union, summary)) {
+            summary = union;
+            if (parent != null) {
+                parent.recount();
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return String.format(
-                String.format("InnerNode:%s %s", this.id, BitUtils.formatHex(filter.asBitMapArray())));
+                String.format("InnerNode:%s %s", this.id, BitUtils.formatHex(summary)));
     }
 
     /**
@@ -90,21 +214,27 @@ public class InnerNode implements Node {
 
     @Override
     public void add(BloomFilter candidate) {
-        insert(candidate);
+        insert(candidate, candidate.asBitMapArray());
     }
 
     /**
-     * Determine the closest node to the candidate from among those in the buckets.
-     * @param candidate the bloom filter to use to test.
+     * Determine the node whose filter grows least when the candidate is added.  The growth is
+     * the number of candidate bits the node does not have.  Ties go to the node with the smaller
+     * filter.  Only called when the buckets hold inner nodes.
+     * @param candidate the bit map of the bloom filter to test.
      * @return the closest node.
      */
-    private int determineClosest(BloomFilter candidate) {
+    private int determineClosest(long[] candidate) {
         int closest = 0;
-        int closestDistance = SetOperations.hammingDistance(candidate, buckets[0].getFilter());
-        for (int i = 1; i < used; i++) {
-            int dist = SetOperations.hammingDistance(candidate, buckets[i].getFilter());
-            if (dist < closestDistance) {
-                closestDistance = dist;
+        int closestGrowth = Integer.MAX_VALUE;
+        int closestCardinality = Integer.MAX_VALUE;
+        for (int i = 0; i < used; i++) {
+            long[] bucketMap = ((InnerNode) buckets[i]).summary;
+            int cardinality = cardinality(bucketMap);
+            int growth = growth(bucketMap, candidate);
+            if (growth < closestGrowth || (growth == closestGrowth && cardinality < closestCardinality)) {
+                closestGrowth = growth;
+                closestCardinality = cardinality;
                 closest = i;
             }
         }
@@ -114,36 +244,26 @@ public class InnerNode implements Node {
     /**
      * Insert the candidate in the specified bucket.
      *
-     * @param position  the bucket to store the candidate in.
      * @param candidate the candidate to store.
+     * @param bitMap    the bit map of the candidate.
+     * @return the leaf node that holds the candidate.
      */
-    private void insert(BloomFilter candidate) {
-        if (used == 0) {
-            buckets[used++] = new LeafNode(this, candidate);
-        } else if (buckets[0] instanceof InnerNode) {
-            ((InnerNode) buckets[determineClosest(candidate)]).add(candidate);
+    LeafNode insert(BloomFilter candidate, long[] bitMap) {
+        LeafNode leaf;
+        if (used == 0 || buckets[0] instanceof LeafNode) {
+            leaf = new LeafNode(this, candidate, bitMap);
+            buckets[used++] = leaf;
         } else {
-            buckets[used++] = new LeafNode(this, candidate);
+            leaf = ((InnerNode) buckets[determineClosest(bitMap)]).insert(candidate, bitMap);
         }
 
         /*
          * if the buckets are full we split this page
          */
-        if (used == NODE_SIZE) {
+        if (used == nodeSize) {
             split();
         }
-    }
-
-    /**
-     * Convert the Bloom filter to a counting Bloom filter if necessary.
-     * @param filter the filter to
-     * @return
-     */
-    private CountingBloomFilter asCountingFilter(final BloomFilter filter) {
-        if (filter instanceof CountingBloomFilter) {
-            return (CountingBloomFilter) filter;
-        }
-        return new PseudoCountingBloomFilter(filter);
+        return leaf;
     }
 
     /**
@@ -160,33 +280,79 @@ public class InnerNode implements Node {
          * we are full so split this node and return the result. The split operation
          * does not change the bloom filter of the parent but does change the bloom
          * filter of this node.
+         *
+         * The children are partitioned to keep the unions small: the two children that
+         * are furthest apart seed the groups and each remaining child joins the group
+         * whose union grows least, while leaving each group at least a third of the children.
          */
-        InnerNode sibling = new InnerNode(parent, shape);
-        int splitPoint = buckets.length / 2;
-        sibling.used = buckets.length - splitPoint;
-        System.arraycopy(buckets, splitPoint, sibling.buckets, 0, sibling.used);
-        used -= sibling.used;
-        Arrays.fill(buckets, used, buckets.length, null);
-
-        // reset our filter
-        filter = new ArrayCountingBloomFilter(shape);
-        for (int i = 0; i < used; i++) {
-            filter.add(asCountingFilter(buckets[i].getFilter()));
+        InnerNode sibling = new InnerNode(parent, shape, nodeSize);
+        Node[] children = Arrays.copyOf(buckets, used);
+        long[][] bitMaps = new long[children.length][];
+        for (int i = 0; i < children.length; i++) {
+            bitMaps[i] = bitMapOf(children[i]);
+        }
+
+        int seedA = 0;
+        int seedB = 1;
+        int maxDistance = -1;
+        for (int i = 0; i < children.length; i++) {
+            for (int j = i + 1; j < children.length; j++) {
+                int distance = growth(bitMaps[i], bitMaps[j]) + growth(bitMaps[j], bitMaps[i]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
         }
 
-        // populate the sibling filter
+        int words = BitMap.numberOfBitMaps(shape.getNumberOfBits());
+        long[] unionA = new long[words];
+        long[] unionB = sibling.summary;
+        merge(unionA, bitMaps[seedA]);
+        merge(unionB, bitMaps[seedB]);
+        Arrays.fill(buckets, null);
+        used = 0;
+        buckets[used++] = children[seedA];
+        sibling.buckets[sibling.used++] = children[seedB];
+        int minimum = Math.max(1, children.length / 3);
+        int remaining = children.length - 2;
+        for (int i = 0; i < children.length; i++) {
+            if (i == seedA || i == seedB) {
+                continue;
+            }
+            boolean toA;
+            if (used + remaining <= minimum) {
+                toA = true;
+            } else if (sibling.used + remaining <= minimum) {
+                toA = false;
+            } else {
+                int growthA = growth(unionA, bitMaps[i]);
+                int growthB = growth(unionB, bitMaps[i]);
+                toA = growthA < growthB || (growthA == growthB && used <= sibling.used);
+            }
+            if (toA) {
+                buckets[used++] = children[i];
+                merge(unionA, bitMaps[i]);
+            } else {
+                sibling.buckets[sibling.used++] = children[i];
+                merge(unionB, bitMaps[i]);
+            }
+            remaining--;
+        }
+
+        // the groups were merged as they were built.
+        summary = unionA;
         for (int i = 0; i < sibling.used; i++) {
             sibling.buckets[i].setParent(sibling);
-            CountingBloomFilter bucketFilter = asCountingFilter(sibling.buckets[i].getFilter());
-            sibling.filter.add(bucketFilter);
         }
 
         // if we are the root create a new root.
         if (parent == null) {
-            parent = new InnerNode(null, shape);
+            parent = new InnerNode(null, shape, nodeSize);
             parent.insert(this);
-            parent.getFilter().add(this.getFilter());
-            parent.getFilter().add(sibling.getFilter());
+            merge(parent.summary, summary);
+            merge(parent.summary, sibling.summary);
         }
 
         /*
@@ -208,14 +374,20 @@ public class InnerNode implements Node {
         // first entry insert and return.
         buckets[used++] = newNode;
         newNode.setParent(this);
-        if (used == NODE_SIZE) {
+        if (used == nodeSize) {
             split();
         }
     }
 
+    /**
+     * Gets the union of the filters below this node.  The filter is a copy of the summary.
+     * @return the union of the filters.
+     */
     @Override
-    public CountingBloomFilter getFilter() {
-        return filter;
+    public BloomFilter getFilter() {
+        BloomFilter result = new SimpleBloomFilter(shape);
+        result.merge(BitMapProducer.fromBitMapArray(summary));
+        return result;
     }
 
     /**
@@ -231,19 +403,12 @@ public class InnerNode implements Node {
                     System.arraycopy(buckets, position + 1, buckets, position, used - position - 1);
                 }
                 buckets[--used] = null;
-                if (used == 0) {
-                    if (parent != null) {
-                        parent.remove(this);
-                    }
+                if (used == 0 && parent != null) {
+                    parent.remove(this);
                 } else {
-                    CountingBloomFilter nodeFilter = asCountingFilter(node.getFilter());
-                    this.filter.subtract(nodeFilter);
-                    InnerNode parent = this.parent;
-                    while (parent != null) {
-                        parent.filter.subtract(nodeFilter);
-                        parent = parent.parent;
-                    }
+                    recount();
                 }
+                return;
             }
         }
     }
@@ -254,11 +419,11 @@ public class InnerNode implements Node {
     }
 
     @Override
-    public boolean remove(BloomFilter filter) {
+    public boolean remove(BloomFilter filter, long[] bitMap) {
         // locate the child node that contains the filter.
-        if (this.filter.contains(filter)) {
+        if (contains(summary, bitMap)) {
             for (int i = 0; i < used; i++) {
-                if (buckets[i].remove(filter)) {
+                if (buckets[i].remove(filter, bitMap)) {
                     return true;
                 }
             }
@@ -267,12 +432,14 @@ public class InnerNode implements Node {
     }
 
     @Override
-    public void search(Consumer<BloomFilter> results, BloomFilter filter) {
-        if (this.filter.contains(filter)) {
+    public boolean search(Traversal<Node> frontier, Predicate<BloomFilter> results, BloomFilter filter,
+            long[] bitMap) {
+        if (contains(summary, bitMap)) {
             for (int i = 0; i < used; i++) {
-                buckets[i].search(results, filter);
+                frontier.push(buckets[i]);
             }
         }
+        return true;
     }
 
     @Override
@@ -1,10 +1,11 @@
 package org.xenei.bloompaper.index.bloofi;
 
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.xenei.bloompaper.index.BitUtils;
 import org.xenei.bloompaper.index.BitUtils.BufferCompare;
+import org.xenei.bloompaper.index.Traversal;
 
 /**
  * A leaf node of the Bloofi tree.
@@ -29,22 +30,22 @@ public class LeafNode implements Node {
      * @param candidate the filter that this node holds
      */
     public LeafNode(InnerNode parent, BloomFilter candidate) {
-        this.filter = candidate;
-        this.id = Node.Counter.nextId();
-        this.count = 1;
-        this.parent = parent;
-        updateFilters(candidate);
+        this(parent, candidate, candidate.asBitMapArray());
     }
 
     /**
-     * Updates all the parent counting Bloom filters with this Bloom filter.
-     * @param candidate
+     * Constructs a Leaf Node and merges the filter into the summaries of the parent nodes.
+     * @param parent the parent of this node.
+     * @param candidate the filter that this node holds
+     * @param bitMap the bit map of the candidate.
      */
-    private void updateFilters(BloomFilter candidate) {
-        InnerNode node = getParent();
-        while (node != null) {
-            node.getFilter().merge(candidate);
-            node = node.getParent();
+    LeafNode(InnerNode parent, BloomFilter candidate, long[] bitMap) {
+        this.filter = candidate;
+        this.id = Node.Counter.nextId();
+        this.count = 1;
+        this.parent = parent;
+        if (parent != null) {
+            parent.mergeUp(bitMap);
         }
     }
 
@@ -60,24 +61,17 @@ public class LeafNode implements Node {
 
     @Override
     public void add(BloomFilter filter) {
+        // the parent summaries already hold the filter bits.
         ++count;
-        updateFilters(this.filter);
     }
 
     @Override
-    public boolean remove(BloomFilter filter) {
+    public boolean remove(BloomFilter filter, long[] bitMap) {
         BufferCompare comp = new BufferCompare(this.filter, BitUtils.BufferCompare.exact);
         if (comp.matches(filter)) {
             count--;
-            InnerNode node = getParent();
             if (count <= 0) {
-                node.remove(this);
-            } else {
-                /* update the filters */
-                while (node != null) {
-                    node.getFilter().remove(filter);
-                    node = node.getParent();
-                }
+                getParent().remove(this);
             }
             return true;
 
@@ -91,12 +85,16 @@ public class LeafNode implements Node {
     }
 
     @Override
-    public void search(Consumer<BloomFilter> result, BloomFilter filter) {
+    public boolean search(Traversal<Node> frontier, Predicate<BloomFilter> result, BloomFilter filter,
+            long[] bitMap) {
         if (this.filter.contains(filter)) {
             for (int i = 0; i < count; i++) {
-                result.accept(this.filter);
+                if (!result.test(this.filter)) {
+                    return false;
+                }
             }
         }
+        return true;
     }
 
     public int count() {
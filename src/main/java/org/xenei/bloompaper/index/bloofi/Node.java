@@ -1,8 +1,9 @@
 package org.xenei.bloompaper.index.bloofi;
 
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 
 /**
  * Bloofi Node definition.
@@ -69,16 +70,22 @@ public interface Node {
     /**
      * Removes a Filter from this node.
      * @param filter the filter to remove.
+     * @param bitMap the bit map of the filter.
      * @return true if the node was removed.
      */
-    public boolean remove(BloomFilter filter);
+    public boolean remove(BloomFilter filter, long[] bitMap);
 
     /**
-     * Searches the node for the Bloom filters that match the filter.
-     * @param results The List to add the results to.
+     * Visits the node during a search.  Inner nodes that may contain matches push their children
+     * onto the frontier, leaf nodes that match pass their filter to the results.
+     * @param frontier the frontier of nodes still to visit.
+     * @param results the predicate that accepts the matching filters and returns false to stop.
      * @param filter the filter to look for.
+     * @param bitMap the bit map of the filter.
+     * @return false if the results stopped the search.
      */
-    public void search(Consumer<BloomFilter> results, BloomFilter filter);
+    public boolean search(Traversal<Node> frontier, Predicate<BloomFilter> results, BloomFilter filter,
+            long[] bitMap);
 
     /**
      * Returns true if the node is empty.
@@ -0,0 +1,55 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+/**
+ * Combines a column of the column major FlatBloofi matrix into an accumulator.
+ * <p>
+ * The scalar implementation is always available. If the {@code vector} profile was used to build
+ * the project and the JVM is started with {@code --add-modules jdk.incubator.vector} an
+ * implementation that uses the Java Vector API is loaded instead. Setting the system property
+ * {@code bloompaper.vector} to {@code false} forces the scalar implementation.
+ * </p>
+ */
+public interface ColumnAnd {
+
+    /**
+     * Performs {@code acc[i] &= column[offset + i]} for {@code i} in {@code [0, length)}.
+     * @param acc the accumulator.
+     * @param column the column to AND into the accumulator.
+     * @param offset the position of the first value in the column.
+     * @param length the number of values to combine.
+     * @return true if any bit in the first {@code length} values of the accumulator is still set.
+     */
+    boolean and(long[] acc, long[] column, int offset, int length);
+
+    /**
+     * Performs {@code acc[i] &= ~column[offset + i]} for {@code i} in {@code [0, length)}.
+     * @param acc the accumulator.
+     * @param column the column to AND NOT into the accumulator.
+     * @param offset the position of the first value in the column.
+     * @param length the number of values to combine.
+     * @return true if any bit in the first {@code length} values of the accumulator is still set.
+     */
+    boolean andNot(long[] acc, long[] column, int offset, int length);
+
+    /**
+     * Gets the name of the implementation.
+     * @return the name of the implementation.
+     */
+    String getName();
+
+    /**
+     * Loads the vector implementation if it is available, otherwise the scalar implementation.
+     * @return the best available ColumnAnd.
+     */
+    static ColumnAnd load() {
+        if (Boolean.parseBoolean(System.getProperty("bloompaper.vector", "true"))) {
+            try {
+                return (ColumnAnd) Class.forName("org.xenei.bloompaper.index.flatbloofi.VectorColumnAnd")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // not compiled or jdk.incubator.vector is not available.
+            }
+        }
+        return new ScalarColumnAnd();
+    }
+}
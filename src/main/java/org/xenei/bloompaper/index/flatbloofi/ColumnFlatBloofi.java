@@ -0,0 +1,220 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.xenei.bloompaper.index.BitUtils;
+
+/**
+ * A FlatBloofi that stores the transposed bit matrix column major.
+ * <p>
+ * In FlatBloofi each block of 64 filters holds one long for each bit of the Shape. Here each bit
+ * of the Shape holds one long for each block of 64 filters, so the values for a single bit across
+ * all the blocks are contiguous. A search ANDs one column for each enabled bit of the target
+ * into an accumulator using a {@link ColumnAnd}, which may process several blocks per
+ * instruction.
+ * </p><p>
+ * The blocks are processed in chunks so that the accumulator stays in the cache.
+ * </p>
+ */
+public final class ColumnFlatBloofi {
+
+    /**
+     * The number of blocks processed together.
+     */
+    private static final int CHUNK = 1024;
+
+    /*
+     * columns[bit][block] is the bit packed set of flags for the 64 filters in the block that
+     * have the bit enabled.
+     */
+    private long[][] columns;
+    private long[] busy;
+    /*
+     * A stack of the blocks that have at least one free slot.  A block is on the stack
+     * if and only if its busy map is not full.
+     */
+    private int[] free;
+    private int freeSize;
+    private int blocks;
+    private int count;
+    private final Shape shape;
+    private final ColumnAnd engine;
+
+    /**
+     * Constructor.  Uses the best available ColumnAnd.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     */
+    public ColumnFlatBloofi(int population, Shape shape) {
+        this(population, shape, ColumnAnd.load());
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     * @param engine the ColumnAnd to search with.
+     */
+    public ColumnFlatBloofi(int population, Shape shape, ColumnAnd engine) {
+        this.shape = shape;
+        this.engine = engine;
+        int capacity = Math.max(1, BitMap.numberOfBitMaps(population));
+        columns = new long[shape.getNumberOfBits()][capacity];
+        busy = new long[capacity];
+        free = new int[capacity];
+        freeSize = 0;
+        blocks = 0;
+        count = 0;
+    }
+
+    /**
+     * Gets the ColumnAnd used by this index.
+     * @return the ColumnAnd used by this index.
+     */
+    public ColumnAnd getEngine() {
+        return engine;
+    }
+
+    public void add(BloomFilter filter) {
+        if (freeSize == 0) {
+            if (blocks == busy.length) {
+                int capacity = blocks * 2;
+                busy = Arrays.copyOf(busy, capacity);
+                free = Arrays.copyOf(free, capacity);
+                for (int k = 0; k < columns.length; k++) {
+                    columns[k] = Arrays.copyOf(columns[k], capacity);
+                }
+            }
+            free[freeSize++] = blocks++;
+        }
+        int block = free[freeSize - 1];
+        int i = Long.SIZE * block + Long.numberOfTrailingZeros(~busy[block]);
+        setBloomAt(i, filter.asBitMapArray());
+        busy[block] |= BitMap.getLongBit(i);
+        if (busy[block] == ~0L) {
+            freeSize--;
+        }
+        count++;
+    }
+
+    /**
+     * Searches for matching filters.  Each matching filter is materialised as a new Bloom filter.
+     * @param result the consumer of the matching filters.
+     * @param filter the filter to search for.
+     * @see #searchSlots(IntConsumer, BloomFilter)
+     */
+    public void search(Consumer<BloomFilter> result, BloomFilter filter) {
+        searchSlots(idx -> result.accept(getBloomAt(idx)), filter);
+    }
+
+    /**
+     * Searches for matching filters and reports the slot id of each match.
+     * @param result the consumer of the slot ids of the matching filters.
+     * @param filter the filter to search for.
+     */
+    public void searchSlots(IntConsumer result, BloomFilter filter) {
+        int[] bits = filter.asIndexArray();
+        long[] acc = new long[Math.min(blocks, CHUNK)];
+        for (int start = 0; start < blocks; start += CHUNK) {
+            int length = Math.min(CHUNK, blocks - start);
+            System.arraycopy(busy, start, acc, 0, length);
+            boolean any = true;
+            for (int l = 0; l < bits.length && any; l++) {
+                any = engine.and(acc, columns[bits[l]], start, length);
+            }
+            if (any) {
+                for (int i = 0; i < length; i++) {
+                    long w = acc[i];
+                    while (w != 0) {
+                        long t = w & -w;
+                        result.accept(Long.numberOfTrailingZeros(t) + (Long.SIZE * (start + i)));
+                        w ^= t;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the filter stored in a slot.
+     * @param idx the slot id as reported by {@link #searchSlots(IntConsumer, BloomFilter)}.
+     * @return a new Bloom filter with the bits of the stored filter.
+     */
+    public BloomFilter getBloomAt(int idx) {
+        final int block = BitMap.getLongIndex(idx);
+        final long mask = BitMap.getLongBit(idx);
+        long[] bits = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
+        for (int k = 0; k < columns.length; k++) {
+            if ((columns[k][block] & mask) != 0) {
+                bits[BitMap.getLongIndex(k)] |= BitMap.getLongBit(k);
+            }
+        }
+        BloomFilter bf = new SimpleBloomFilter(shape);
+        bf.merge(BitMapProducer.fromBitMapArray(bits));
+        return bf;
+    }
+
+    private void setBloomAt(int i, long[] bits) {
+        final int block = BitMap.getLongIndex(i);
+        final long mask = BitMap.getLongBit(i);
+        for (int k = 0; k < columns.length; k++) {
+            if (BitUtils.isSet(bits, k)) {
+                columns[k][block] |= mask;
+            } else {
+                columns[k][block] &= ~mask;
+            }
+        }
+    }
+
+    /**
+     * Gets the first entry that exactly matches the filter.
+     * @param filter the filter to match.
+     * @return the slot id of the entry or -1 if there is no match.
+     */
+    private int findExactMatch(BloomFilter filter) {
+        long[] bits = filter.asBitMapArray();
+        long[] acc = new long[Math.min(blocks, CHUNK)];
+        for (int start = 0; start < blocks; start += CHUNK) {
+            int length = Math.min(CHUNK, blocks - start);
+            System.arraycopy(busy, start, acc, 0, length);
+            boolean any = true;
+            for (int k = 0; k < columns.length && any; k++) {
+                any = BitUtils.isSet(bits, k) ? engine.and(acc, columns[k], start, length)
+                        : engine.andNot(acc, columns[k], start, length);
+            }
+            if (any) {
+                for (int i = 0; i < length; i++) {
+                    if (acc[i] != 0) {
+                        return Long.SIZE * (start + i) + Long.numberOfTrailingZeros(acc[i]);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean delete(BloomFilter filter) {
+        int delIdx = findExactMatch(filter);
+        if (delIdx > -1) {
+            int block = BitMap.getLongIndex(delIdx);
+            if (busy[block] == ~0L) {
+                free[freeSize++] = block;
+            }
+            busy[block] &= ~BitMap.getLongBit(delIdx);
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    public int count() {
+        return count;
+    }
+}
@@ -0,0 +1,174 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.IndexProducer;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.xenei.bloompaper.index.inverted.PostingList;
+import org.xenei.bloompaper.index.inverted.PostingLists;
+
+/**
+ * A FlatBloofi that stores each bit column of the matrix as a compressed bitmap of slot ids.
+ * <p>
+ * Where {@link ColumnFlatBloofi} holds one long for each block of 64 filters for every bit of the
+ * Shape, here a column only exists once a filter enables the bit and holds the slot ids in a
+ * {@link PostingList}.  The memory used follows the number of enabled bits rather than the
+ * population times the width of the Shape.  A search intersects the columns of the enabled bits
+ * of the target, smallest first.
+ * </p><p>
+ * The enabled bits of each slot are kept so that a slot can be cleared by removing its id from its
+ * columns, and filling a slot adds its id to its columns; neither re-encodes a column.
+ * </p>
+ */
+public final class CompressedFlatBloofi {
+
+    /*
+     * columns[bit] is the set of slot ids that have the bit enabled, or null if no slot has.
+     */
+    private final PostingList[] columns;
+    /*
+     * slotBits[slot] is the enabled bits of the filter in the slot.
+     */
+    private int[][] slotBits;
+    private long[] busy;
+    /*
+     * A stack of the blocks that have at least one free slot.  A block is on the stack
+     * if and only if its busy map is not full.
+     */
+    private int[] free;
+    private int freeSize;
+    private int blocks;
+    private int count;
+    private final Shape shape;
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     */
+    public CompressedFlatBloofi(int population, Shape shape) {
+        this.shape = shape;
+        int capacity = Math.max(1, BitMap.numberOfBitMaps(population));
+        columns = new PostingList[shape.getNumberOfBits()];
+        slotBits = new int[capacity * Long.SIZE][];
+        busy = new long[capacity];
+        free = new int[capacity];
+        freeSize = 0;
+        blocks = 0;
+        count = 0;
+    }
+
+    public void add(BloomFilter filter) {
+        if (freeSize == 0) {
+            if (blocks == busy.length) {
+                int capacity = blocks * 2;
+                busy = Arrays.copyOf(busy, capacity);
+                free = Arrays.copyOf(free, capacity);
+                slotBits = Arrays.copyOf(slotBits, capacity * Long.SIZE);
+            }
+            free[freeSize++] = blocks++;
+        }
+        int block = free[freeSize - 1];
+        int i = Long.SIZE * block + Long.numberOfTrailingZeros(~busy[block]);
+        int[] bits = filter.asIndexArray();
+        for (int bit : bits) {
+            if (columns[bit] == null) {
+                columns[bit] = new PostingList();
+            }
+            columns[bit].add(i);
+        }
+        slotBits[i] = bits;
+        busy[block] |= BitMap.getLongBit(i);
+        if (busy[block] == ~0L) {
+            freeSize--;
+        }
+        count++;
+    }
+
+    /**
+     * Converts each column to the representation that uses the least space, including runs of
+     * slot ids.  Columns are converted back as slots change.
+     */
+    public void runOptimize() {
+        for (PostingList column : columns) {
+            if (column != null) {
+                column.runOptimize();
+            }
+        }
+    }
+
+    /**
+     * Searches for matching filters.  Each matching filter is materialised as a new Bloom filter.
+     * @param result the consumer of the matching filters.
+     * @param filter the filter to search for.
+     * @see #searchSlots(IntConsumer, BloomFilter)
+     */
+    public void search(Consumer<BloomFilter> result, BloomFilter filter) {
+        searchSlots(idx -> result.accept(getBloomAt(idx)), filter);
+    }
+
+    /**
+     * Searches for matching filters and reports the slot id of each match.
+     * @param result the consumer of the slot ids of the matching filters.
+     * @param filter the filter to search for.
+     */
+    public void searchSlots(IntConsumer result, BloomFilter filter) {
+        PostingLists.intersect(columns, filter.asIndexArray(), blocks * Long.SIZE, this::isBusy, idx -> {
+            result.accept(idx);
+            return true;
+        });
+    }
+
+    private boolean isBusy(int idx) {
+        return (busy[BitMap.getLongIndex(idx)] & BitMap.getLongBit(idx)) != 0;
+    }
+
+    /**
+     * Gets the filter stored in a slot.
+     * @param idx the slot id as reported by {@link #searchSlots(IntConsumer, BloomFilter)}.
+     * @return a new Bloom filter with the bits of the stored filter.
+     */
+    public BloomFilter getBloomAt(int idx) {
+        BloomFilter bf = new SimpleBloomFilter(shape);
+        bf.merge(IndexProducer.fromIndexArray(slotBits[idx]));
+        return bf;
+    }
+
+    /**
+     * Gets the first entry that exactly matches the filter.  An entry that contains all the
+     * bits of the filter and has the same number of bits is an exact match.
+     * @param filter the filter to match.
+     * @return the slot id of the entry or -1 if there is no match.
+     */
+    private int findExactMatch(BloomFilter filter) {
+        return PostingLists.findExact(columns, filter.asIndexArray(), blocks * Long.SIZE, this::isBusy,
+                idx -> slotBits[idx].length);
+    }
+
+    public boolean delete(BloomFilter filter) {
+        int delIdx = findExactMatch(filter);
+        if (delIdx > -1) {
+            for (int bit : slotBits[delIdx]) {
+                columns[bit].remove(delIdx);
+            }
+            slotBits[delIdx] = null;
+            int block = BitMap.getLongIndex(delIdx);
+            if (busy[block] == ~0L) {
+                free[freeSize++] = block;
+            }
+            busy[block] &= ~BitMap.getLongBit(delIdx);
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    public int count() {
+        return count;
+    }
+}
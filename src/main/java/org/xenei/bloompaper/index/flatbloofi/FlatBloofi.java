@@ -1,14 +1,14 @@
 package org.xenei.bloompaper.index.flatbloofi;
 
-import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Consumer;
-import java.util.function.IntPredicate;
+import java.util.function.IntConsumer;
 
 import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BitMapProducer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
-import org.apache.commons.collections4.bloomfilter.IndexProducer;
 import org.apache.commons.collections4.bloomfilter.Shape;
 import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
 import org.xenei.bloompaper.index.BitUtils;
@@ -24,78 +24,284 @@ import org.xenei.bloompaper.index.BitUtils;
  */
 public final class FlatBloofi {
 
+    /**
+     * The default minimum number of blocks scanned by a single parallel search task.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 64;
+
+    /**
+     * The default fraction of the slots that must be in use before a delete triggers a compaction.
+     */
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
     /*
      * each buffer entry accounts for 64 entries in the index. each there is one
      * long in each buffer entry for each bit in the bloom filter. each long is a
-     * bit packed set of 64 flags, one for each entry.
+     * bit packed set of 64 flags, one for each entry.  The last long in each buffer
+     * entry is the busy map for the 64 entries.
      */
-    private ArrayList<long[]> buffer;
-    private BitSet busy;
+    private long[][] buffer;
+    private int blocks;
+    private int count;
+    private final int busyWord;
     private final Shape shape;
 
+    /*
+     * A stack of the blocks that have at least one free slot.  A block is on the stack
+     * if and only if its busy map is not full.
+     */
+    private int[] free;
+    private int freeSize;
+
+    /*
+     * When fewer than this fraction of the slots are in use a delete compacts the index.
+     */
+    private double compactionThreshold;
+
+    /*
+     * The pool to execute parallel searches on.  If null searches are executed on the
+     * calling thread.
+     */
+    private ForkJoinPool pool;
+    private int parallelThreshold;
+
     public FlatBloofi(int population, Shape shape) {
         this.shape = shape;
-        buffer = new ArrayList<long[]>(0);
-        busy = new BitSet(0);
+        busyWord = shape.getNumberOfBits();
+        buffer = new long[BitMap.numberOfBitMaps(population)][];
+        blocks = 0;
+        count = 0;
+        free = new int[buffer.length];
+        freeSize = 0;
+        compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+        pool = null;
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Sets the fraction of the slots that must be in use after a delete.  If fewer slots are in use
+     * the index is compacted.  A threshold of 0 disables automatic compaction.
+     * @param threshold the fraction of slots that must be in use, between 0 and 1.
+     * @see #compact()
+     */
+    public void setCompactionThreshold(double threshold) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be between 0 and 1");
+        }
+        this.compactionThreshold = threshold;
+    }
+
+    /**
+     * Enables parallel search.  The blocks of 64 filters are split across the tasks in the pool
+     * until a task has no more than {@code threshold} blocks to scan.  Each task gathers
+     * its own matches and the matches are passed to the search consumer on the calling thread
+     * in index order, so the consumer does not need to be thread safe.
+     * @param pool the pool to execute the search on, or {@code null} to search on the calling thread.
+     * @param threshold the maximum number of blocks to scan in a single task.
+     */
+    public void setParallel(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be greater than 0");
+        }
+        this.pool = pool;
+        this.parallelThreshold = threshold;
     }
 
     public void add(BloomFilter filter) {
-        int i = busy.nextClearBit(0);
-        if (buffer.size() - 1 < BitMap.getLongIndex(i)) {
-            buffer.add(new long[shape.getNumberOfBits() + 1]);
+        if (freeSize == 0) {
+            if (blocks == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(1, blocks * 2));
+                free = Arrays.copyOf(free, buffer.length);
+            }
+            buffer[blocks] = new long[shape.getNumberOfBits() + 1];
+            free[freeSize++] = blocks++;
         }
+        int block = free[freeSize - 1];
+        int i = Long.SIZE * block + Long.numberOfTrailingZeros(~buffer[block][busyWord]);
         setBloomAt(i, filter.asBitMapArray());
-        busy.set(i);
+        buffer[block][busyWord] |= BitMap.getLongBit(i);
+        if (buffer[block][busyWord] == ~0L) {
+            freeSize--;
+        }
+        count++;
+    }
+
+    /**
+     * Adds a set of filters.  The free slots in the existing blocks are filled first, the
+     * remaining filters are written 64 at a time into new blocks by transposing the bit maps of
+     * each group of filters with {@link BitUtils#transpose64(long[])}.
+     * @param filters the filters to add.
+     */
+    public void bulkLoad(BloomFilter[] filters) {
+        int i = 0;
+        while (i < filters.length && freeSize > 0) {
+            add(filters[i++]);
+        }
+        int needed = blocks + (filters.length - i + Long.SIZE - 1) / Long.SIZE;
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, needed);
+            free = Arrays.copyOf(free, needed);
+        }
+        int words = BitMap.numberOfBitMaps(shape.getNumberOfBits());
+        long[][] bitMaps = new long[Long.SIZE][];
+        long[] matrix = new long[Long.SIZE];
+        while (i < filters.length) {
+            int n = Math.min(Long.SIZE, filters.length - i);
+            for (int f = 0; f < n; f++) {
+                bitMaps[f] = filters[i + f].asBitMapArray();
+            }
+            long[] block = new long[busyWord + 1];
+            for (int w = 0; w < words; w++) {
+                for (int f = 0; f < Long.SIZE; f++) {
+                    matrix[f] = f < n && w < bitMaps[f].length ? bitMaps[f][w] : 0L;
+                }
+                BitUtils.transpose64(matrix);
+                System.arraycopy(matrix, 0, block, w * Long.SIZE, Math.min(Long.SIZE, busyWord - w * Long.SIZE));
+            }
+            block[busyWord] = n == Long.SIZE ? ~0L : BitMap.getLongBit(n) - 1;
+            if (n < Long.SIZE) {
+                free[freeSize++] = blocks;
+            }
+            buffer[blocks++] = block;
+            count += n;
+            i += n;
+        }
     }
 
+    /**
+     * Searches for matching filters.  Each matching filter is materialised as a new Bloom filter.
+     * @param result the consumer of the matching filters.
+     * @param filter the filter to search for.
+     * @see #searchSlots(IntConsumer, BloomFilter)
+     */
     public void search(Consumer<BloomFilter> result, BloomFilter filter) {
-        BitSet bs = BitSet.valueOf(filter.asBitMapArray());
+        searchSlots(idx -> result.accept(getBloomAt(idx)), filter);
+    }
+
+    /**
+     * Searches for matching filters and reports the slot id of each match.  No objects are
+     * created for the matches, use {@link #getBloomAt(int)} to retrieve the filter for a slot.
+     * @param result the consumer of the slot ids of the matching filters.
+     * @param filter the filter to search for.
+     */
+    public void searchSlots(IntConsumer result, BloomFilter filter) {
+        int[] bits = filter.asIndexArray();
 
-        for (int i = 0; i < buffer.size(); i++) {
-            long w = ~0l;
-            for (int l = bs.nextSetBit(0); l >= 0; l = bs.nextSetBit(l + 1)) {
-                w &= buffer.get(i)[l];
+        if (pool != null && blocks > parallelThreshold) {
+            pool.invoke(new SearchTask(bits, 0, blocks)).forEach(result);
+        } else {
+            searchBlocks(result, bits, 0, blocks);
+        }
+    }
+
+    /**
+     * Searches a range of blocks.
+     * @param result the consumer of the matching slot ids.
+     * @param bits the enabled bits of the filter to search for.
+     * @param start the first block to search.
+     * @param end the block after the last block to search.
+     */
+    private void searchBlocks(IntConsumer result, int[] bits, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final long[] block = buffer[i];
+            long w = block[busyWord];
+            for (int l = 0; l < bits.length && w != 0; l++) {
+                w &= block[bits[l]];
             }
 
             while (w != 0) {
                 long t = w & -w;
-                int idx = Long.numberOfTrailingZeros(t) + (Long.SIZE * i);
-                if (busy.get(idx)) {
-                    result.accept(getBloomAt(idx));
-                }
+                result.accept(Long.numberOfTrailingZeros(t) + (Long.SIZE * i));
                 w ^= t;
             }
         }
     }
 
-    private BloomFilter getBloomAt(int idx) {
-        IndexProducer indexProducer = new IndexProducer() {
+    /**
+     * Searches a range of blocks, splitting the range until it is no larger than the parallel threshold.
+     * Each task gathers the matching slot ids for its range.
+     */
+    private class SearchTask extends RecursiveTask<Slots> {
+        private static final long serialVersionUID = 1L;
+        private final int[] bits;
+        private final int start;
+        private final int end;
 
-            final long[] mybuffer = buffer.get(BitMap.getLongIndex(idx));
-            final long mask = BitMap.getLongBit(idx);
+        SearchTask(int[] bits, int start, int end) {
+            this.bits = bits;
+            this.start = start;
+            this.end = end;
+        }
 
-            @Override
-            public boolean forEachIndex(IntPredicate consumer) {
-                for (int k = 0; k < mybuffer.length; k++) {
-                    if ((mask & mybuffer[k]) > 0) {
-                        if (!consumer.test(k)) {
-                            return false;
-                        }
-                    }
-                }
-                return true;
+        @Override
+        protected Slots compute() {
+            if (end - start <= parallelThreshold) {
+                Slots found = new Slots();
+                searchBlocks(found, bits, start, end);
+                return found;
             }
-        };
-        BitMapProducer bitMapProducer = BitMapProducer.fromIndexProducer(indexProducer, shape.getNumberOfBits());
+            int mid = (start + end) >>> 1;
+            SearchTask upper = new SearchTask(bits, mid, end);
+            upper.fork();
+            Slots found = new SearchTask(bits, start, mid).compute();
+            found.addAll(upper.join());
+            return found;
+        }
+    }
+
+    /**
+     * A growable list of slot ids.
+     */
+    private static class Slots implements IntConsumer {
+        private int[] slots = new int[16];
+        private int size;
+
+        @Override
+        public void accept(int value) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = value;
+        }
+
+        void addAll(Slots other) {
+            if (size + other.size > slots.length) {
+                slots = Arrays.copyOf(slots, size + other.size);
+            }
+            System.arraycopy(other.slots, 0, slots, size, other.size);
+            size += other.size;
+        }
+
+        void forEach(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the filter stored in a slot.
+     * @param idx the slot id as reported by {@link #searchSlots(IntConsumer, BloomFilter)}.
+     * @return a new Bloom filter with the bits of the stored filter.
+     */
+    public BloomFilter getBloomAt(int idx) {
+        final long[] mybuffer = buffer[BitMap.getLongIndex(idx)];
+        final long mask = BitMap.getLongBit(idx);
+        long[] bits = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
+        for (int k = 0; k < busyWord; k++) {
+            if ((mask & mybuffer[k]) != 0) {
+                bits[BitMap.getLongIndex(k)] |= BitMap.getLongBit(k);
+            }
+        }
         BloomFilter bf = new SimpleBloomFilter(shape);
-        bf.merge(bitMapProducer);
+        bf.merge(BitMapProducer.fromBitMapArray(bits));
         return bf;
     }
 
     private void setBloomAt(int i, long[] bits) {
-        final long[] mybuffer = buffer.get(BitMap.getLongIndex(i));
+        final long[] mybuffer = buffer[BitMap.getLongIndex(i)];
         final long mask = BitMap.getLongBit(i);
-        for (int k = 0; k < mybuffer.length; k++) {
+        for (int k = 0; k < busyWord; k++) {
             if (BitUtils.isSet(bits, k)) {
                 mybuffer[k] |= mask;
             } else {
@@ -105,79 +311,149 @@ public final class FlatBloofi {
     }
 
     /**
-     * Gets a packed index of entries that exactly match the filter.
-     * @param filter the filter to match/
-     * @return a packed index of entries.
+     * Gets the first entry that exactly matches the filter.
+     * @param filter the filter to match.
+     * @return the slot id of the entry or -1 if there is no match.
      */
-    private BitSet findExactMatch(BloomFilter filter) {
+    private int findExactMatch(BloomFilter filter) {
         long[] bits = filter.asBitMapArray();
-        long[] result = new long[buffer.size()];
-        long[] busyBits = busy.toLongArray();
         /*
          * for each set of 64 filters in the index
          */
-        for (int filterSetIdx = 0; filterSetIdx < result.length; filterSetIdx++) {
+        for (int filterSetIdx = 0; filterSetIdx < blocks; filterSetIdx++) {
             /*
              * Each entry in the filter set is a map of 64 filters in the index to the bit
              * for the position. So filterSet[0] is a bit map of 64 index entries if the bit
              * is on in a specific position then that Bloom filter has bit 0 turned on.
              *
              */
-            long[] filterSet = buffer.get(filterSetIdx);
-
-            /*
-             * Build a list of the 64 filters in this chunk of index that have the proper
-             * bits turned on.
-             */
+            long[] filterSet = buffer[filterSetIdx];
 
             /*
-             * remove is the map of all entries that we know do not match so remove all the
-             * ones that are not in the busy list
+             * keep is the map of all entries that might match, start with the busy
+             * entries and remove any that do not have the same bits.
              */
-            long remove = ~busyBits[filterSetIdx];
+            long keep = filterSet[busyWord];
 
-            // is the list of all entries that might match.
-            long keep = ~0L;
-            boolean foundKeep = false;
-
-            for (int idx = 0; idx < shape.getNumberOfBits(); idx++) {
+            for (int idx = 0; idx < busyWord && keep != 0; idx++) {
                 if (BitUtils.isSet(bits, idx)) {
-                    foundKeep = true;
                     keep &= filterSet[idx];
-                    if (keep == 0) {
-                        // we are not keeping any so get out of the loop
-                        break;
-                    }
                 } else {
-                    remove |= filterSet[idx];
-                    if (remove == ~0L) {
-                        // we are removing them all so get out of the loop
-                        break;
-                    }
+                    keep &= ~filterSet[idx];
                 }
             }
 
-            if (foundKeep) {
-                result[filterSetIdx] = keep & ~remove;
+            if (keep != 0) {
+                return Long.SIZE * filterSetIdx + Long.numberOfTrailingZeros(keep);
             }
         }
-
-        return BitSet.valueOf(result);
+        return -1;
     }
 
     public boolean delete(BloomFilter filter) {
-        BitSet found = findExactMatch(filter);
-
-        int delIdx = found.nextSetBit(0);
+        int delIdx = findExactMatch(filter);
         if (delIdx > -1) {
-            busy.clear(delIdx);
+            int block = BitMap.getLongIndex(delIdx);
+            if (buffer[block][busyWord] == ~0L) {
+                free[freeSize++] = block;
+            }
+            buffer[block][busyWord] &= ~BitMap.getLongBit(delIdx);
+            count--;
+            if (blocks > 1 && count < compactionThreshold * blocks * Long.SIZE) {
+                compact();
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Moves the live filters to the lowest slots and releases the blocks that are no longer used.
+     * <p>
+     * Blocks with no live filters are first replaced by the last block, then individual filters
+     * are moved from the last block into the free slots of the first blocks. Afterwards only the
+     * last block may have free slots.
+     * </p><p>
+     * Slot ids reported by {@link #searchSlots(IntConsumer, BloomFilter)} before the compaction are
+     * not valid after it.
+     * </p>
+     */
+    public void compact() {
+        trim();
+        for (int i = 0; i < blocks - 1; i++) {
+            if (buffer[i][busyWord] == 0L) {
+                buffer[i] = buffer[blocks - 1];
+                buffer[--blocks] = null;
+                trim();
+            }
+        }
+
+        int lo = 0;
+        int hi = blocks - 1;
+        while (lo < hi) {
+            long loFree = ~buffer[lo][busyWord];
+            if (loFree == 0) {
+                lo++;
+                continue;
+            }
+            long hiBusy = buffer[hi][busyWord];
+            if (hiBusy == 0) {
+                buffer[hi--] = null;
+                blocks--;
+                continue;
+            }
+            moveSlot(buffer[hi], Long.highestOneBit(hiBusy), buffer[lo], Long.lowestOneBit(loFree));
+        }
+        trim();
+
+        if (buffer.length > 2 * blocks) {
+            buffer = Arrays.copyOf(buffer, Math.max(1, blocks));
+            free = new int[buffer.length];
+        }
+        freeSize = 0;
+        if (blocks > 0 && buffer[blocks - 1][busyWord] != ~0L) {
+            free[freeSize++] = blocks - 1;
+        }
+    }
+
+    /**
+     * Releases the trailing blocks that have no live filters.
+     */
+    private void trim() {
+        while (blocks > 0 && buffer[blocks - 1][busyWord] == 0L) {
+            buffer[--blocks] = null;
+        }
+    }
+
+    /**
+     * Moves a filter between slots.
+     * @param src the block containing the filter.
+     * @param srcMask the mask for the filter in the source block.
+     * @param dest the block to move the filter to.
+     * @param destMask the mask for the free slot in the destination block.
+     */
+    private void moveSlot(long[] src, long srcMask, long[] dest, long destMask) {
+        for (int k = 0; k < busyWord; k++) {
+            if ((src[k] & srcMask) != 0) {
+                dest[k] |= destMask;
+            } else {
+                dest[k] &= ~destMask;
+            }
+        }
+        dest[busyWord] |= destMask;
+        src[busyWord] &= ~srcMask;
+    }
+
+    /**
+     * Gets the number of blocks of 64 slots in the index.
+     * @return the number of blocks.
+     */
+    int blockCount() {
+        return blocks;
+    }
+
     public int count() {
-        return busy.cardinality();
+        return count;
     }
 
 }
@@ -0,0 +1,321 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.xenei.bloompaper.index.BitUtils;
+
+/**
+ * A FlatBloofi that stores the transposed bit matrix outside of the Java heap.
+ * <p>
+ * The matrix is stored either in direct buffers or in a memory mapped file. Each block of 64
+ * filters is stored as {@code shape.getNumberOfBits() + 1} longs. The first long is the busy map
+ * for the block, the remaining longs are the bit columns for the 64 filters. Blocks are
+ * stored in segments of no more than 1GB so that indexes larger than a single buffer can be
+ * mapped.
+ * </p><p>
+ * When a file is used the index can be closed and reopened without rebuilding it.
+ * </p>
+ */
+public final class MappedFlatBloofi implements Closeable {
+    /**
+     * The marker at the start of the file. Also used to verify the byte order.
+     */
+    private static final long MAGIC = 0x466c6174426c6f6fL;
+    /**
+     * The number of bytes reserved for the header.
+     */
+    private static final int HEADER_BYTES = 64;
+    /**
+     * The maximum number of bytes in a segment.
+     */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    /*
+     * Header positions
+     */
+    private static final int H_MAGIC = 0;
+    private static final int H_BITS = 1;
+    private static final int H_HASH_FUNCTIONS = 2;
+    private static final int H_BLOCKS_PER_SEGMENT = 3;
+    private static final int H_BLOCK_COUNT = 4;
+
+    private final Shape shape;
+    private final FileChannel channel;
+    private final LongBuffer header;
+    private final List<LongBuffer> segments;
+    private final List<MappedByteBuffer> mapped;
+    private final int blockSize;
+    private final int blocksPerSegment;
+    private int blockCount;
+    private int count;
+
+    /*
+     * A stack of the blocks that have at least one free slot.  A block is on the stack
+     * if and only if its busy map is not full.
+     */
+    private int[] free;
+    private int freeSize;
+
+    /**
+     * Creates an index in direct (off heap) buffers.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     */
+    public MappedFlatBloofi(int population, Shape shape) {
+        this.shape = shape;
+        this.channel = null;
+        this.blockSize = shape.getNumberOfBits() + 1;
+        this.blocksPerSegment = calculateBlocksPerSegment(population);
+        this.header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        this.segments = new ArrayList<LongBuffer>();
+        this.mapped = null;
+        this.free = new int[1];
+        writeHeader();
+    }
+
+    /**
+     * Opens or creates an index in a memory mapped file. If the file exists and contains an index
+     * the index is reopened, otherwise a new index is created.
+     * @param file the file to store the index in.
+     * @param population the expected number of filters. Ignored if the index is reopened.
+     * @param shape the Shape of the filters.
+     * @throws IOException on error opening the file.
+     * @throws IllegalArgumentException if the file contains an index with a different shape.
+     */
+    public MappedFlatBloofi(Path file, int population, Shape shape) throws IOException {
+        this.shape = shape;
+        this.blockSize = shape.getNumberOfBits() + 1;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.segments = new ArrayList<LongBuffer>();
+        this.mapped = new ArrayList<MappedByteBuffer>();
+        boolean exists = channel.size() >= HEADER_BYTES;
+        MappedByteBuffer headerBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        mapped.add(headerBuffer);
+        this.header = headerBuffer.order(ByteOrder.nativeOrder()).asLongBuffer();
+        this.free = new int[1];
+        if (exists) {
+            if (header.get(H_MAGIC) != MAGIC) {
+                channel.close();
+                throw new IllegalArgumentException(file + " is not a FlatBloofi index");
+            }
+            if (header.get(H_BITS) != shape.getNumberOfBits()
+                    || header.get(H_HASH_FUNCTIONS) != shape.getNumberOfHashFunctions()) {
+                channel.close();
+                throw new IllegalArgumentException(String.format("%s was created with a different shape", file));
+            }
+            this.blocksPerSegment = (int) header.get(H_BLOCKS_PER_SEGMENT);
+            int blocks = (int) header.get(H_BLOCK_COUNT);
+            while (blockCount < blocks) {
+                ensureBlock(blockCount);
+            }
+            for (int block = 0; block < blockCount; block++) {
+                long busy = get(block, 0);
+                count += Long.bitCount(busy);
+                if (busy != ~0L) {
+                    pushFree(block);
+                }
+            }
+        } else {
+            this.blocksPerSegment = calculateBlocksPerSegment(population);
+            writeHeader();
+        }
+    }
+
+    private int calculateBlocksPerSegment(int population) {
+        long maxBlocks = MAX_SEGMENT_BYTES / (Long.BYTES * (long) blockSize);
+        if (maxBlocks == 0) {
+            throw new IllegalArgumentException(
+                    String.format("Shape %s is too large for a mapped FlatBloofi", shape));
+        }
+        long blocks = Math.max(1, BitMap.numberOfBitMaps(population));
+        return (int) Math.min(maxBlocks, blocks);
+    }
+
+    private void writeHeader() {
+        header.put(H_MAGIC, MAGIC);
+        header.put(H_BITS, shape.getNumberOfBits());
+        header.put(H_HASH_FUNCTIONS, shape.getNumberOfHashFunctions());
+        header.put(H_BLOCKS_PER_SEGMENT, blocksPerSegment);
+        header.put(H_BLOCK_COUNT, blockCount);
+    }
+
+    /**
+     * Ensures that the block exists, creating segments as necessary.
+     * @param block the block to create.
+     */
+    private void ensureBlock(int block) {
+        while (segments.size() <= block / blocksPerSegment) {
+            long segmentBytes = Long.BYTES * (long) blockSize * blocksPerSegment;
+            if (channel == null) {
+                segments.add(ByteBuffer.allocateDirect((int) segmentBytes).order(ByteOrder.nativeOrder())
+                        .asLongBuffer());
+            } else {
+                long position = HEADER_BYTES + segmentBytes * segments.size();
+                try {
+                    MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, position, segmentBytes);
+                    mapped.add(segment);
+                    segments.add(segment.order(ByteOrder.nativeOrder()).asLongBuffer());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to map segment", e);
+                }
+            }
+        }
+        if (block >= blockCount) {
+            blockCount = block + 1;
+            header.put(H_BLOCK_COUNT, blockCount);
+        }
+    }
+
+    private void pushFree(int block) {
+        if (freeSize == free.length) {
+            free = Arrays.copyOf(free, freeSize * 2);
+        }
+        free[freeSize++] = block;
+    }
+
+    private long get(int block, int word) {
+        return segments.get(block / blocksPerSegment).get((block % blocksPerSegment) * blockSize + word);
+    }
+
+    private void put(int block, int word, long value) {
+        segments.get(block / blocksPerSegment).put((block % blocksPerSegment) * blockSize + word, value);
+    }
+
+    public void add(BloomFilter filter) {
+        if (freeSize == 0) {
+            ensureBlock(blockCount);
+            pushFree(blockCount - 1);
+        }
+        int block = free[freeSize - 1];
+        long busy = get(block, 0);
+        int i = Long.SIZE * block + Long.numberOfTrailingZeros(~busy);
+        setBloomAt(i, filter.asBitMapArray());
+        busy |= BitMap.getLongBit(i);
+        put(block, 0, busy);
+        if (busy == ~0L) {
+            freeSize--;
+        }
+        count++;
+    }
+
+    public void search(Consumer<BloomFilter> result, BloomFilter filter) {
+        int[] bits = filter.asIndexArray();
+        for (int block = 0; block < blockCount; block++) {
+            long w = get(block, 0);
+            for (int i = 0; i < bits.length && w != 0; i++) {
+                w &= get(block, bits[i] + 1);
+            }
+
+            while (w != 0) {
+                long t = w & -w;
+                result.accept(getBloomAt(block, t));
+                w ^= t;
+            }
+        }
+    }
+
+    private BloomFilter getBloomAt(int block, long mask) {
+        long[] bits = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
+        for (int k = 0; k < shape.getNumberOfBits(); k++) {
+            if ((get(block, k + 1) & mask) != 0) {
+                bits[BitMap.getLongIndex(k)] |= BitMap.getLongBit(k);
+            }
+        }
+        BloomFilter bf = new SimpleBloomFilter(shape);
+        bf.merge(BitMapProducer.fromBitMapArray(bits));
+        return bf;
+    }
+
+    private void setBloomAt(int i, long[] bits) {
+        final int block = BitMap.getLongIndex(i);
+        final long mask = BitMap.getLongBit(i);
+        for (int k = 0; k < shape.getNumberOfBits(); k++) {
+            long word = get(block, k + 1);
+            put(block, k + 1, BitUtils.isSet(bits, k) ? word | mask : word & ~mask);
+        }
+    }
+
+    /**
+     * Finds the first entry that exactly matches the filter.
+     * @param filter the filter to match.
+     * @return the index of the entry or -1 if not found.
+     */
+    private int findExactMatch(BloomFilter filter) {
+        long[] bits = filter.asBitMapArray();
+        for (int block = 0; block < blockCount; block++) {
+            long keep = get(block, 0);
+            for (int k = 0; k < shape.getNumberOfBits() && keep != 0; k++) {
+                if (BitUtils.isSet(bits, k)) {
+                    keep &= get(block, k + 1);
+                } else {
+                    keep &= ~get(block, k + 1);
+                }
+            }
+            if (keep != 0) {
+                return Long.SIZE * block + Long.numberOfTrailingZeros(keep);
+            }
+        }
+        return -1;
+    }
+
+    public boolean delete(BloomFilter filter) {
+        int delIdx = findExactMatch(filter);
+        if (delIdx > -1) {
+            int block = BitMap.getLongIndex(delIdx);
+            long busy = get(block, 0);
+            if (busy == ~0L) {
+                pushFree(block);
+            }
+            put(block, 0, busy & ~BitMap.getLongBit(delIdx));
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Writes any changes to the mapped file. Does nothing for direct buffers.
+     */
+    public void force() {
+        if (mapped != null) {
+            for (MappedByteBuffer buffer : mapped) {
+                buffer.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            mapped.clear();
+            channel.close();
+        }
+        segments.clear();
+        blockCount = 0;
+        count = 0;
+        freeSize = 0;
+    }
+}
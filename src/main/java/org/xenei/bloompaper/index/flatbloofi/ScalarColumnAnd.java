@@ -0,0 +1,30 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+/**
+ * A ColumnAnd that processes one long at a time.
+ */
+public class ScalarColumnAnd implements ColumnAnd {
+
+    @Override
+    public boolean and(long[] acc, long[] column, int offset, int length) {
+        long any = 0;
+        for (int i = 0; i < length; i++) {
+            any |= (acc[i] &= column[offset + i]);
+        }
+        return any != 0;
+    }
+
+    @Override
+    public boolean andNot(long[] acc, long[] column, int offset, int length) {
+        long any = 0;
+        for (int i = 0; i < length; i++) {
+            any |= (acc[i] &= ~column[offset + i]);
+        }
+        return any != 0;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
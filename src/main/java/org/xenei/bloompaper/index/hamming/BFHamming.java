@@ -1,13 +1,14 @@
 package org.xenei.bloompaper.index.hamming;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 
+import org.apache.commons.collections4.bloomfilter.BitMap;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Shape;
-import org.xenei.bloompaper.index.BloomIndex;
+import org.xenei.bloompaper.index.BitUtils;
 import org.xenei.bloompaper.index.FrozenBloomFilter;
 
 /**
@@ -15,36 +16,79 @@ import org.xenei.bloompaper.index.FrozenBloomFilter;
  *
  * As set of lists is created based on hamming value. The lists are sorted by
  * estimated Log value.
+ * <p>
+ * Each list is a {@link Partition} that stores the logs, bit maps and duplicate counts in
+ * primitive arrays and returns filters built from the bit maps.  A search skips the lists with a hamming value below that of the target,
+ * checks the list with the same hamming value for an exact match and scans the remaining lists
+ * from the first entry with a log that is not less than the log of the target.
+ * </p><p>
+ * Searches copy the bit maps of the target into a per thread scratch buffer so that a search
+ * does not allocate.
+ * </p>
  */
 public class BFHamming {
 
-    private TreeSet<Node> index = new TreeSet<Node>();
+    private final Shape shape;
+    private final Partition[] index;
+    private final int stride;
     public List<FrozenBloomFilter> found;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * A reusable buffer of {@code stride} bit maps that is filled from a filter.
+     */
+    private static class Scratch implements LongPredicate {
+        private final long[] bitMap;
+        private int cardinality;
+        private int pos;
+
+        Scratch(int stride) {
+            bitMap = new long[stride];
+        }
+
+        @Override
+        public boolean test(long word) {
+            if (pos < bitMap.length) {
+                bitMap[pos++] = word;
+                cardinality += Long.bitCount(word);
+            }
+            return true;
+        }
+
+        long[] fill(BloomFilter filter) {
+            pos = 0;
+            cardinality = 0;
+            filter.forEachBitMap(this);
+            Arrays.fill(bitMap, pos, bitMap.length, 0L);
+            return bitMap;
+        }
+    }
 
     public BFHamming(Shape shape) {
-        Node.setEmpty(shape);
+        this.shape = shape;
+        stride = BitMap.numberOfBitMaps(shape.getNumberOfBits());
+        index = new Partition[shape.getNumberOfBits() + 1];
+        scratch = ThreadLocal.withInitial(() -> new Scratch(stride));
+    }
+
+    private long[] bitMap(BloomFilter filter) {
+        long[] bitMap = filter.asBitMapArray();
+        return bitMap.length == stride ? bitMap : Arrays.copyOf(bitMap, stride);
     }
 
     public void add(BloomFilter filter) {
-        Node node = new Node(filter);
-        SortedSet<Node> tailSet = index.tailSet(node);
-        if (tailSet.isEmpty() || !node.equals(tailSet.first())) {
-            tailSet.add(node);
-        } else {
-            tailSet.first().increment();
+        long[] bitMap = bitMap(filter);
+        int hamming = filter.cardinality();
+        if (index[hamming] == null) {
+            index[hamming] = new Partition(shape);
         }
+        index[hamming].add(BitUtils.approximateLog(bitMap), bitMap);
     }
 
     public boolean delete(BloomFilter filter) {
-        Node node = new Node(filter);
-        SortedSet<Node> tailSet = index.tailSet(node);
-        if (!tailSet.isEmpty() && node.equals(tailSet.first())) {
-            if (tailSet.first().decrement()) {
-                tailSet.remove(tailSet.first());
-            }
-            return true;
-        }
-        return false;
+        long[] bitMap = bitMap(filter);
+        Partition partition = index[filter.cardinality()];
+        return partition != null && partition.delete(BitUtils.approximateLog(bitMap), bitMap);
     }
 
     /**
@@ -54,34 +98,30 @@ public class BFHamming {
      * @return
      */
     public void search(Consumer<BloomFilter> result, BloomFilter filter) {
+        Scratch buffer = scratch.get();
+        long[] bitMap = buffer.fill(filter);
+        int hamming = buffer.cardinality;
+        double log = BitUtils.approximateLog(bitMap);
 
-        Node node = new Node(filter);
-        // int retval = 0;
-
-        SortedSet<Node> tailSet = index.tailSet(node);
-        if (tailSet.isEmpty()) {
-            return;
-        }
-        if (node.equals(tailSet.first())) {
-            tailSet.first().getCount(result);
+        if (index[hamming] != null) {
+            index[hamming].searchEqual(result, log, bitMap);
         }
-
-        Node lowerLimit = node.lowerLimitNode();
-        Node upperLimit;
-
-        while (lowerLimit.compareTo(index.last()) <= 0) {
-            upperLimit = lowerLimit.upperLimitNode();
-            tailSet.tailSet(lowerLimit).headSet(upperLimit).stream().filter(n -> n.getFilter().contains(filter))
-                    .forEach((n) -> n.getCount(result));
-            lowerLimit = upperLimit.lowerLimitNode();
+        for (int h = hamming + 1; h < index.length; h++) {
+            if (index[h] != null) {
+                index[h].searchContains(result, log, bitMap);
+            }
         }
     }
 
     public int scan(BloomFilter bf) {
-        BloomIndex.Incrementer incr = new BloomIndex.Incrementer();
-        index.stream().map((n) -> n.getFilter()).filter((f) -> f.contains(bf)).forEach(incr);
-        return incr.count;
-
+        long[] bitMap = scratch.get().fill(bf);
+        int result = 0;
+        for (Partition partition : index) {
+            if (partition != null) {
+                result += partition.scan(bitMap);
+            }
+        }
+        return result;
     }
 
 }
@@ -0,0 +1,299 @@
+package org.xenei.bloompaper.index.hamming;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+
+/**
+ * The filters of a single hamming weight in primitive arrays.
+ * <p>
+ * Entry {@code i} has the log {@code logs[i]}, the bit maps {@code bits[i * stride]} through
+ * {@code bits[(i + 1) * stride - 1]} and the number of times it was added {@code counts[i]}.
+ * A search returns a new filter built from the bit maps of each matching entry.
+ * </p><p>
+ * The first {@code sorted} entries are sorted by approximate log and then by bit map.  New entries
+ * are appended to an unsorted tail that is merged into the sorted entries once it grows past the
+ * square root of the number of sorted entries.  An entry in the sorted entries whose count drops
+ * to zero is left in place and skipped until enough of them build up to compact the arrays during
+ * a merge.  Searches only read the arrays.
+ * </p>
+ */
+final class Partition {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Shape shape;
+    private final int stride;
+    private double[] logs;
+    private long[] bits;
+    private int[] counts;
+    private int size;
+    private int sorted;
+    private int dead;
+
+    Partition(Shape shape) {
+        this.shape = shape;
+        this.stride = BitMap.numberOfBitMaps(shape.getNumberOfBits());
+        logs = new double[INITIAL_CAPACITY];
+        bits = new long[INITIAL_CAPACITY * stride];
+        counts = new int[INITIAL_CAPACITY];
+        size = 0;
+        sorted = 0;
+        dead = 0;
+    }
+
+    /**
+     * Compares entry {@code i} with a log and bit map.
+     * @param offset the position of the first bit map in {@code bitMap}.
+     */
+    private int compare(int i, double log, long[] bitMap, int offset) {
+        int result = Double.compare(logs[i], log);
+        int base = i * stride;
+        for (int w = 0; w < stride && result == 0; w++) {
+            result = Long.compare(bits[base + w], bitMap[offset + w]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds an entry in the sorted entries.
+     * @param log the log of the entry.
+     * @param bitMap the bit map of the entry, at least {@code stride} longs.
+     * @return the position of the entry, or {@code -(insertion point) - 1} if it is not present.
+     */
+    private int find(double log, long[] bitMap) {
+        int low = 0;
+        int high = sorted - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, log, bitMap, 0);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Finds an entry in the unsorted tail.
+     * @return the position of the entry, or -1 if it is not present.
+     */
+    private int findTail(double log, long[] bitMap) {
+        for (int i = sorted; i < size; i++) {
+            if (compare(i, log, bitMap, 0) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first sorted entry with a log greater than or equal to the log.
+     */
+    private int lowerBound(double log) {
+        int low = 0;
+        int high = sorted;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (logs[mid] < log) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void add(double log, long[] bitMap) {
+        int pos = find(log, bitMap);
+        if (pos < 0) {
+            pos = findTail(log, bitMap);
+        }
+        if (pos >= 0) {
+            if (counts[pos]++ == 0) {
+                dead--;
+            }
+            return;
+        }
+        if (size == logs.length) {
+            int capacity = size * 2;
+            logs = Arrays.copyOf(logs, capacity);
+            bits = Arrays.copyOf(bits, capacity * stride);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        logs[size] = log;
+        System.arraycopy(bitMap, 0, bits, size * stride, stride);
+        counts[size] = 1;
+        size++;
+        if (size - sorted > Math.max(INITIAL_CAPACITY, (int) Math.sqrt(sorted))) {
+            merge();
+        }
+    }
+
+    boolean delete(double log, long[] bitMap) {
+        int pos = find(log, bitMap);
+        if (pos >= 0) {
+            if (counts[pos] == 0) {
+                return false;
+            }
+            if (--counts[pos] == 0 && ++dead > sorted / 2) {
+                merge();
+            }
+            return true;
+        }
+        pos = findTail(log, bitMap);
+        if (pos < 0) {
+            return false;
+        }
+        if (--counts[pos] == 0) {
+            size--;
+            if (pos != size) {
+                move(size, pos);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies entry {@code from} over entry {@code to}.
+     */
+    private void move(int from, int to) {
+        logs[to] = logs[from];
+        System.arraycopy(bits, from * stride, bits, to * stride, stride);
+        counts[to] = counts[from];
+    }
+
+    /**
+     * Sorts the tail, drops the sorted entries with a zero count and merges the two so that
+     * all the entries are sorted.  The tail is insertion sorted as it holds at most about the
+     * square root of the number of entries.
+     */
+    private void merge() {
+        int tail = size - sorted;
+        int[] order = new int[tail];
+        for (int k = 0; k < tail; k++) {
+            int p = sorted + k;
+            int j = k - 1;
+            while (j >= 0 && compare(order[j], logs[p], bits, p * stride) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = p;
+        }
+        double[] tailLogs = new double[tail];
+        long[] tailBits = new long[tail * stride];
+        int[] tailCounts = new int[tail];
+        for (int k = 0; k < tail; k++) {
+            tailLogs[k] = logs[order[k]];
+            System.arraycopy(bits, order[k] * stride, tailBits, k * stride, stride);
+            tailCounts[k] = counts[order[k]];
+        }
+
+        int live = 0;
+        for (int i = 0; i < sorted; i++) {
+            if (counts[i] > 0) {
+                if (live != i) {
+                    move(i, live);
+                }
+                live++;
+            }
+        }
+
+        // merge from the back so that no sorted entry is overwritten before it is moved.
+        int i = live - 1;
+        int w = live + tail - 1;
+        for (int k = tail - 1; k >= 0; w--) {
+            if (i >= 0 && compare(i, tailLogs[k], tailBits, k * stride) > 0) {
+                move(i--, w);
+            } else {
+                logs[w] = tailLogs[k];
+                System.arraycopy(tailBits, k * stride, bits, w * stride, stride);
+                counts[w] = tailCounts[k];
+                k--;
+            }
+        }
+        size = live + tail;
+        sorted = size;
+        dead = 0;
+    }
+
+    /**
+     * Reports the entry that exactly matches the bit map once for each time it was added.
+     */
+    void searchEqual(Consumer<BloomFilter> result, double log, long[] bitMap) {
+        int pos = find(log, bitMap);
+        if (pos < 0) {
+            pos = findTail(log, bitMap);
+        }
+        if (pos >= 0) {
+            report(result, pos);
+        }
+    }
+
+    /**
+     * Reports each entry that contains the bit map once for each time it was added.  A filter that
+     * contains another has a log that is not smaller so the sorted entries with a smaller log are
+     * skipped.
+     */
+    void searchContains(Consumer<BloomFilter> result, double log, long[] bitMap) {
+        for (int i = lowerBound(log); i < sorted; i++) {
+            if (contains(i, bitMap)) {
+                report(result, i);
+            }
+        }
+        for (int i = sorted; i < size; i++) {
+            if (contains(i, bitMap)) {
+                report(result, i);
+            }
+        }
+    }
+
+    /**
+     * Counts the entries that contain the bit map.
+     */
+    int scan(long[] bitMap) {
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0 && contains(i, bitMap)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private boolean contains(int i, long[] bitMap) {
+        int offset = i * stride;
+        int w = 0;
+        while (w < stride && (bits[offset + w] & bitMap[w]) == bitMap[w]) {
+            w++;
+        }
+        return w == stride;
+    }
+
+    private void report(Consumer<BloomFilter> result, int i) {
+        if (counts[i] == 0) {
+            return;
+        }
+        int offset = i * stride;
+        BloomFilter filter = new SimpleBloomFilter(shape);
+        filter.merge((BitMapProducer) predicate -> {
+            for (int w = 0; w < stride; w++) {
+                if (!predicate.test(bits[offset + w])) {
+                    return false;
+                }
+            }
+            return true;
+        });
+        for (int c = 0; c < counts[i]; c++) {
+            result.accept(filter);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A container that holds up to {@link Container#ARRAY_LIMIT} values in a sorted array.
+ */
+final class ArrayContainer extends Container {
+    private char[] values;
+    private int size;
+
+    ArrayContainer() {
+        values = new char[4];
+        size = 0;
+    }
+
+    ArrayContainer(int capacity) {
+        values = new char[Math.max(4, capacity)];
+        size = 0;
+    }
+
+    /**
+     * Appends a value that is larger than all the values in the container.
+     */
+    void append(char value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, size * 2));
+        }
+        values[size++] = value;
+    }
+
+    @Override
+    Container add(char value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0) {
+            return this;
+        }
+        if (size == ARRAY_LIMIT) {
+            return BitmapContainer.of(this).add(value);
+        }
+        position = -position - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, size * 2));
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+        return this;
+    }
+
+    @Override
+    Container remove(char value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0) {
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+        }
+        return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+        return size;
+    }
+
+    @Override
+    boolean forEach(int high, IntPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (!predicate.test(high | values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int numberOfRuns() {
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1] + 1) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+}
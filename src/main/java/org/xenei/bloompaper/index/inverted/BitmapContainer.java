@@ -0,0 +1,104 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A container that holds more than {@link Container#ARRAY_LIMIT} values as a 65536 bit bitmap.
+ */
+final class BitmapContainer extends Container {
+    /**
+     * The number of words in the bitmap.
+     */
+    static final int WORDS = 1 << 10;
+
+    private final long[] bits;
+    private int cardinality;
+
+    BitmapContainer() {
+        bits = new long[WORDS];
+        cardinality = 0;
+    }
+
+    /**
+     * Creates a bitmap container with the values of another container.
+     */
+    static BitmapContainer of(Container other) {
+        BitmapContainer result = new BitmapContainer();
+        other.forEach(0, v -> {
+            result.set((char) v);
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * Sets a bit without changing the container type.
+     */
+    void set(char value) {
+        long mask = 1L << value;
+        if ((bits[value >>> 6] & mask) == 0) {
+            bits[value >>> 6] |= mask;
+            cardinality++;
+        }
+    }
+
+    @Override
+    Container add(char value) {
+        set(value);
+        return this;
+    }
+
+    @Override
+    Container remove(char value) {
+        long mask = 1L << value;
+        if ((bits[value >>> 6] & mask) != 0) {
+            bits[value >>> 6] &= ~mask;
+            cardinality--;
+            if (cardinality <= ARRAY_LIMIT) {
+                ArrayContainer result = new ArrayContainer(cardinality);
+                forEach(0, v -> {
+                    result.append((char) v);
+                    return true;
+                });
+                return result;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return (bits[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean forEach(int high, IntPredicate predicate) {
+        for (int w = 0; w < WORDS; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                if (!predicate.test(high | (w << 6) | Long.numberOfTrailingZeros(word))) {
+                    return false;
+                }
+                word &= word - 1;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int numberOfRuns() {
+        int runs = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = bits[w];
+            // count the positions where a set bit follows a clear bit, carrying the previous word.
+            long previous = w == 0 ? 0L : bits[w - 1] >>> 63;
+            runs += Long.bitCount(word & ~((word << 1) | previous));
+        }
+        return runs;
+    }
+}
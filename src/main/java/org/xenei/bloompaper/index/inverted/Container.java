@@ -0,0 +1,74 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A set of the low 16 bits of the ids that share the same high 16 bits.
+ * <p>
+ * Mutations return the container that holds the result, which is not always the container that
+ * was called, so that each container can switch to the most compact representation.
+ * </p>
+ */
+abstract class Container {
+
+    /**
+     * The largest number of values held in an array container.
+     */
+    static final int ARRAY_LIMIT = 4096;
+
+    /**
+     * Adds a value.
+     * @param value the low 16 bits of the id.
+     * @return the container that holds the result.
+     */
+    abstract Container add(char value);
+
+    /**
+     * Removes a value.
+     * @param value the low 16 bits of the id.
+     * @return the container that holds the result.
+     */
+    abstract Container remove(char value);
+
+    /**
+     * Determines if the value is in the container.
+     * @param value the low 16 bits of the id.
+     * @return true if the value is present.
+     */
+    abstract boolean contains(char value);
+
+    /**
+     * Gets the number of values in the container.
+     * @return the number of values.
+     */
+    abstract int cardinality();
+
+    /**
+     * Passes each value in ascending order to the predicate until it returns false.
+     * @param high the high 16 bits to combine with each value.
+     * @param predicate the predicate that accepts the ids.
+     * @return false if the predicate stopped the iteration.
+     */
+    abstract boolean forEach(int high, IntPredicate predicate);
+
+    /**
+     * Counts the runs of consecutive values.
+     * @return the number of runs.
+     */
+    abstract int numberOfRuns();
+
+    /**
+     * Gets the container that holds the values in the least space.  Runs are only considered here,
+     * mutations never create a run container.
+     * @return the most compact container.
+     */
+    Container runOptimize() {
+        int cardinality = cardinality();
+        int runBytes = 2 + 4 * numberOfRuns();
+        int otherBytes = cardinality <= ARRAY_LIMIT ? 2 * cardinality : BitmapContainer.WORDS * Long.BYTES;
+        if (runBytes < otherBytes) {
+            return this instanceof RunContainer ? this : RunContainer.of(this);
+        }
+        return this instanceof RunContainer ? ((RunContainer) this).toEfficient() : this;
+    }
+}
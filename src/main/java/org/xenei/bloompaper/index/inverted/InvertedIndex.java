@@ -0,0 +1,168 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * An index of Bloom filters that keeps, for each bit position, a posting list of the ids of the
+ * filters that have the bit set.
+ * <p>
+ * A search intersects the posting lists of the bits in the target, smallest first, so the cost
+ * depends on the length of the posting lists rather than on the number of filters times the width
+ * of the filter.  The filters are never converted to bit maps so sparse filters with very many bits
+ * stay cheap.
+ * </p><p>
+ * A filter matches exactly when it contains the target and has the same cardinality, so deletes
+ * use the same intersection.
+ * </p>
+ */
+public class InvertedIndex {
+    private final PostingList[] postings;
+    private BloomFilter[] filters;
+    private int[] cardinalities;
+    /**
+     * The ids that have been freed by deletes.
+     */
+    private int[] free;
+    private int freeSize;
+    /**
+     * The number of ids that have been used.
+     */
+    private int high;
+    private int count;
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     */
+    public InvertedIndex(int population, Shape shape) {
+        postings = new PostingList[shape.getNumberOfBits()];
+        int capacity = Math.max(1, population);
+        filters = new BloomFilter[capacity];
+        cardinalities = new int[capacity];
+        free = new int[16];
+        freeSize = 0;
+        high = 0;
+        count = 0;
+    }
+
+    /**
+     * Gets the number of filters in the index.
+     * @return the number of filters.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Gets the bit indices of a filter.
+     */
+    private static int[] indices(BloomFilter filter) {
+        int[] result = new int[filter.cardinality()];
+        int[] n = { 0 };
+        filter.forEachIndex(i -> {
+            if (n[0] == result.length) {
+                return false;
+            }
+            result[n[0]++] = i;
+            return true;
+        });
+        return n[0] == result.length ? result : Arrays.copyOf(result, n[0]);
+    }
+
+    private int nextId() {
+        if (freeSize > 0) {
+            return free[--freeSize];
+        }
+        if (high == filters.length) {
+            filters = Arrays.copyOf(filters, high * 2);
+            cardinalities = Arrays.copyOf(cardinalities, high * 2);
+        }
+        return high++;
+    }
+
+    /**
+     * Adds a filter.
+     * @param filter the filter to add.
+     */
+    public void add(BloomFilter filter) {
+        int[] indices = indices(filter);
+        int id = nextId();
+        filters[id] = filter;
+        cardinalities[id] = indices.length;
+        for (int index : indices) {
+            if (postings[index] == null) {
+                postings[index] = new PostingList();
+            }
+            postings[index].add(id);
+        }
+        count++;
+    }
+
+    /**
+     * Adds a set of filters and then converts the posting lists to their most compact form.
+     * @param filters the filters to add.
+     */
+    public void bulkLoad(BloomFilter[] filters) {
+        for (BloomFilter filter : filters) {
+            add(filter);
+        }
+        for (PostingList posting : postings) {
+            if (posting != null) {
+                posting.runOptimize();
+            }
+        }
+    }
+
+    /**
+     * Deletes a filter with exactly the same bits as the target.
+     * @param filter the filter to delete.
+     * @return true if a filter was deleted.
+     */
+    public boolean delete(BloomFilter filter) {
+        int[] indices = indices(filter);
+        int id = PostingLists.findExact(postings, indices, high, this::isLive, i -> cardinalities[i]);
+        if (id < 0) {
+            return false;
+        }
+        for (int index : indices) {
+            postings[index].remove(id);
+        }
+        filters[id] = null;
+        if (freeSize == free.length) {
+            free = Arrays.copyOf(free, freeSize * 2);
+        }
+        free[freeSize++] = id;
+        count--;
+        return true;
+    }
+
+    /**
+     * Passes the id of each filter that contains the target to the predicate until it returns false.
+     * @param predicate the predicate that accepts the ids.
+     * @param filter the filter to search for.
+     * @return false if the predicate stopped the search.
+     */
+    public boolean searchIds(IntPredicate predicate, BloomFilter filter) {
+        return PostingLists.intersect(postings, indices(filter), high, this::isLive, predicate);
+    }
+
+    private boolean isLive(int id) {
+        return filters[id] != null;
+    }
+
+    /**
+     * Passes each filter that contains the target to the predicate until it returns false.
+     * @param predicate the predicate that accepts the filters.
+     * @param filter the filter to search for.
+     * @return false if the predicate stopped the search.
+     */
+    public boolean searchWhile(Predicate<BloomFilter> predicate, BloomFilter filter) {
+        return searchIds(id -> predicate.test(filters[id]), filter);
+    }
+}
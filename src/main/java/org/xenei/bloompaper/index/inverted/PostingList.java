@@ -0,0 +1,132 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A compressed set of non negative int ids.
+ * <p>
+ * The ids are split on their high 16 bits.  Each high value has a container for the low 16 bits
+ * that is a sorted array when it holds few ids, a bitmap when it holds many and, after
+ * {@link #runOptimize()}, a list of runs when the ids are mostly consecutive.
+ * </p>
+ */
+public class PostingList {
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    private int cardinality;
+
+    /**
+     * Constructor.
+     */
+    public PostingList() {
+        keys = new char[1];
+        containers = new Container[1];
+        size = 0;
+        cardinality = 0;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Adds an id.
+     * @param id the id to add.
+     * @return true if the id was not already present.
+     */
+    public boolean add(int id) {
+        char key = (char) (id >>> 16);
+        char value = (char) id;
+        int position = find(key);
+        if (position < 0) {
+            position = -position - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(containers, position, containers, position + 1, size - position);
+            keys[position] = key;
+            containers[position] = new ArrayContainer();
+            size++;
+        }
+        Container container = containers[position];
+        int before = container.cardinality();
+        containers[position] = container.add(value);
+        if (containers[position].cardinality() == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes an id.
+     * @param id the id to remove.
+     * @return true if the id was present.
+     */
+    public boolean remove(int id) {
+        int position = find((char) (id >>> 16));
+        if (position < 0) {
+            return false;
+        }
+        Container container = containers[position];
+        int before = container.cardinality();
+        container = container.remove((char) id);
+        if (container.cardinality() == before) {
+            return false;
+        }
+        cardinality--;
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+            containers[--size] = null;
+        } else {
+            containers[position] = container;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the id is in the list.
+     * @param id the id to look for.
+     * @return true if the id is present.
+     */
+    public boolean contains(int id) {
+        int position = find((char) (id >>> 16));
+        return position >= 0 && containers[position].contains((char) id);
+    }
+
+    /**
+     * Gets the number of ids in the list.
+     * @return the number of ids.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Passes each id in ascending order to the predicate until it returns false.
+     * @param predicate the predicate that accepts the ids.
+     * @return false if the predicate stopped the iteration.
+     */
+    public boolean forEach(IntPredicate predicate) {
+        for (int i = 0; i < size; i++) {
+            if (!containers[i].forEach(keys[i] << 16, predicate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts each container to the representation that uses the least space, including runs.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++) {
+            containers[i] = containers[i].runOptimize();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Operations on an array of posting lists indexed by bit position, as used by the
+ * {@link InvertedIndex} and the compressed FlatBloofi.
+ * <p>
+ * The ids are in the range {@code [0, high)} and {@code live} reports the ids that hold a filter.
+ * These are only used when the target has no enabled bits, since every filter contains it.
+ * </p>
+ */
+public final class PostingLists {
+
+    private PostingLists() {
+    }
+
+    /**
+     * Passes the ids that are in the posting lists of all the indices to the predicate until it
+     * returns false.  The posting lists are intersected smallest first.
+     * @param postings the posting lists by bit position, a null entry is an empty list.
+     * @param indices the enabled bits of the target.
+     * @param high the number of ids that have been used.
+     * @param live determines if an id holds a filter.
+     * @param predicate the predicate that accepts the ids.
+     * @return false if the predicate stopped the intersection.
+     */
+    public static boolean intersect(PostingList[] postings, int[] indices, int high, IntPredicate live,
+            IntPredicate predicate) {
+        if (indices.length == 0) {
+            // every filter contains the empty filter.
+            for (int id = 0; id < high; id++) {
+                if (live.test(id) && !predicate.test(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        PostingList[] lists = new PostingList[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            lists[i] = postings[indices[i]];
+            if (lists[i] == null || lists[i].cardinality() == 0) {
+                return true;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        return lists[0].forEach(id -> {
+            for (int i = 1; i < lists.length; i++) {
+                if (!lists[i].contains(id)) {
+                    return true;
+                }
+            }
+            return predicate.test(id);
+        });
+    }
+
+    /**
+     * Finds an id with exactly the indices.  An id that contains all the indices and has the same
+     * number of enabled bits is an exact match.
+     * @param postings the posting lists by bit position, a null entry is an empty list.
+     * @param indices the enabled bits of the target.
+     * @param high the number of ids that have been used.
+     * @param live determines if an id holds a filter.
+     * @param cardinality gets the number of enabled bits of the filter held by an id.
+     * @return the id or -1 if there is no match.
+     */
+    public static int findExact(PostingList[] postings, int[] indices, int high, IntPredicate live,
+            IntUnaryOperator cardinality) {
+        int[] found = { -1 };
+        intersect(postings, indices, high, live, id -> {
+            if (cardinality.applyAsInt(id) == indices.length) {
+                found[0] = id;
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+}
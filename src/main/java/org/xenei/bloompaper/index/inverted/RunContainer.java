@@ -0,0 +1,113 @@
+package org.xenei.bloompaper.index.inverted;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A container that holds the values as runs of consecutive values.  Run containers are only
+ * created by {@link Container#runOptimize()}; a mutation converts the runs back to an array or
+ * bitmap container first.
+ */
+final class RunContainer extends Container {
+    private final char[] starts;
+    private final char[] lengths;
+    private final int cardinality;
+
+    private RunContainer(char[] starts, char[] lengths, int cardinality) {
+        this.starts = starts;
+        this.lengths = lengths;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Creates a run container with the values of another container.
+     */
+    static RunContainer of(Container other) {
+        int runs = other.numberOfRuns();
+        char[] starts = new char[runs];
+        char[] lengths = new char[runs];
+        int[] run = { -1 };
+        int[] last = { -2 };
+        other.forEach(0, v -> {
+            if (v != last[0] + 1) {
+                starts[++run[0]] = (char) v;
+            } else {
+                lengths[run[0]]++;
+            }
+            last[0] = v;
+            return true;
+        });
+        return new RunContainer(starts, lengths, other.cardinality());
+    }
+
+    /**
+     * Converts the runs to an array or bitmap container.
+     */
+    Container toEfficient() {
+        if (cardinality <= ARRAY_LIMIT) {
+            ArrayContainer result = new ArrayContainer(cardinality);
+            forEach(0, v -> {
+                result.append((char) v);
+                return true;
+            });
+            return result;
+        }
+        return BitmapContainer.of(this);
+    }
+
+    /**
+     * Finds the run that may contain the value.
+     * @return the index of the last run that starts at or before the value, or -1.
+     */
+    private int find(char value) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    Container add(char value) {
+        return contains(value) ? this : toEfficient().add(value);
+    }
+
+    @Override
+    Container remove(char value) {
+        return contains(value) ? toEfficient().remove(value) : this;
+    }
+
+    @Override
+    boolean contains(char value) {
+        int run = find(value);
+        return run >= 0 && value - starts[run] <= lengths[run];
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean forEach(int high, IntPredicate predicate) {
+        for (int run = 0; run < starts.length; run++) {
+            int end = starts[run] + lengths[run];
+            for (int v = starts[run]; v <= end; v++) {
+                if (!predicate.test(high | v)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int numberOfRuns() {
+        return starts.length;
+    }
+}
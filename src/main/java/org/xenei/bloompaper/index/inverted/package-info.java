@@ -0,0 +1 @@
+package org.xenei.bloompaper.index.inverted;
@@ -11,6 +11,8 @@ import org.apache.commons.collections4.bloomfilter.Shape;
 import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
 import org.xenei.bloompaper.index.BitUtils;
 import org.xenei.bloompaper.index.BloomIndex;
+import org.xenei.bloompaper.index.ParallelSearch;
+import org.xenei.bloompaper.index.Traversal;
 
 /**
  * A multidimensional bloom filter that uses internally constructed bloom filters to shard the stored
@@ -27,6 +29,8 @@ public class NaturalBloofi extends BloomIndex {
     private int id;
     private final int bucketPopulation = 10000;
     private final Shape filterShape;
+    private ParallelSearch parallel;
+    private Traversal.Order order = Traversal.Order.DEPTH_FIRST;
 
     public NaturalBloofi(int population, Shape shape) {
         super(population, shape);
@@ -38,6 +42,24 @@ public class NaturalBloofi extends BloomIndex {
             root.add(new Bucket(bucketNumber, filterShape, bucketPopulation));
         }
         id = 0;
+        parallel = null;
+    }
+
+    /**
+     * Sets the order the nodes of each bucket are visited in during a search.
+     * @param order the traversal order.
+     */
+    public void setTraversalOrder(Traversal.Order order) {
+        this.order = order;
+    }
+
+    /**
+     * Enables parallel search.  The buckets whose gatekeeper matches the target are searched
+     * concurrently by the ParallelSearch.
+     * @param parallel the ParallelSearch to use, or {@code null} to search on the calling thread.
+     */
+    public void setParallel(ParallelSearch parallel) {
+        this.parallel = parallel;
     }
 
     @Override
@@ -108,24 +130,39 @@ public class NaturalBloofi extends BloomIndex {
         return false;
     }
 
-    private void mapper(Shape shape, Node n, Consumer<BloomFilter> consumer) {
+    private boolean mapper(Shape shape, Node n, Consumer<BloomFilter> consumer) {
         BloomFilter bf = new SimpleBloomFilter(shape);
         bf.merge(BitMapProducer.fromBitMapArray(n.bitMap));
         for (@SuppressWarnings("unused")
         int i : n.getIds()) {
             consumer.accept(bf);
         }
+        return true;
     }
 
     @Override
     protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
-        Searcher searcher = new Searcher(n -> mapper(filter.getShape(), n, consumer), filter);
         Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
         Bucket candidate = null;
+        if (parallel != null) {
+            List<Bucket> candidates = new ArrayList<Bucket>();
+            for (int i = 0; i < root.size(); i++) {
+                candidate = root.get(i);
+                if (candidate.contains(filterHasher)) {
+                    candidates.add(candidate);
+                }
+            }
+            parallel.search(candidates, (bucket, c) -> {
+                Searcher bucketSearcher = new Searcher(n -> mapper(filter.getShape(), n, c), filter);
+                bucketSearcher.search(order, bucket);
+            }, consumer);
+            return;
+        }
+        Searcher searcher = new Searcher(n -> mapper(filter.getShape(), n, consumer), filter);
         for (int i = 0; i < root.size(); i++) {
             candidate = root.get(i);
             if (candidate.contains(filterHasher)) {
-                candidate.searchChildren(searcher.target, searcher);
+                searcher.search(order, candidate);
             }
         }
     }
@@ -2,13 +2,12 @@ package org.xenei.bloompaper.index.naturalbloofi;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.function.LongPredicate;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.BitUtils;
+import org.xenei.bloompaper.index.Traversal;
 
 public class Node extends NodeContainer implements Comparable<Node> {
 
@@ -83,7 +82,7 @@ public class Node extends NodeContainer implements Comparable<Node> {
         this.ids = new ArrayList<>(1);
         this.ids.add(id);
         this.log = bloomFilter == null ? (double) Integer.MAX_VALUE
-                : getApproximateLog(getApproximateLogExponents(bloomFilter));
+                : BitUtils.approximateLog(bitMap);
         this.hashValue = Double.hashCode(log);
         if (parent != null) {
             parent.addChild(this);
@@ -119,74 +118,6 @@ public class Node extends NodeContainer implements Comparable<Node> {
         return log;
     }
 
-    /**
-     * Get the approximate log for this filter. If the bloom filter is considered as
-     * an unsigned number what is the approximate base 2 log of that value. The
-     * depth argument indicates how many extra bits are to be considered in the log
-     * calculation. At least one bit must be considered. If there are no bits on
-     * then the log value is 0.
-     *
-     * @param depth the number of bits to consider.
-     * @return the approximate log.
-     */
-    static double getApproximateLog(int[] exp) {
-        /*
-         * this approximation is calculated using a derivation of
-         * http://en.wikipedia.org/wiki/Binary_logarithm#Algorithm
-         */
-        // the mantissa is the highest bit that is turned on.
-        if (exp[0] < 0) {
-            // there are no bits so return 0
-            return 0;
-        }
-        double result = exp[0];
-        // now we move backwards from the highest bit until the requested
-        // is achieved.
-        double exp2;
-        for (int i = 1; i < exp.length; i++) {
-            if (exp[i] == -1) {
-                return result;
-            }
-            exp2 = exp[i] - exp[0]; // should be negative
-            result += Math.pow(2.0, exp2);
-        }
-        return result;
-    }
-
-    /**
-     * The mantissa of the log in in position position 0. The remainder are
-     * characteristic powers.
-     *
-     * @param depth
-     * @return An array of depth integers that are the exponents.
-     */
-    static final int[] getApproximateLogExponents(BloomFilter filter) {
-        // reverse order set
-        Set<Integer> exponents = new TreeSet<Integer>(new Comparator<Integer>() {
-
-            @Override
-            public int compare(Integer x, Integer y) {
-                return Integer.compare(y, x);
-            }
-        });
-
-        filter.forEachIndex(x -> {
-            exponents.add(x);
-            return true;
-        });
-        int[] exp = new int[exponents.size() + 1];
-        exp[exponents.size()] = -1;
-        Iterator<Integer> iter = exponents.iterator();
-        for (int i = 1; i < exponents.size(); i++) {
-            exp[i] = iter.next().intValue();
-            if (exp[i] - exp[0] < -25) {
-                exp[i] = -1;
-                return exp;
-            }
-        }
-        return exp;
-    }
-
     boolean contains(Node other) {
         return contains(other.bitMap);
     }
@@ -204,8 +135,11 @@ public class Node extends NodeContainer implements Comparable<Node> {
     }
 
     public void walkTree(Consumer<Node> consumer) {
-        consumer.accept(this);
-        forChildren((Consumer<Node>) (n -> n.walkTree(consumer)));
+        Traversal.<Node>run(Traversal.Order.DEPTH_FIRST, this, (node, frontier) -> {
+            consumer.accept(node);
+            node.forChildren(frontier::push);
+            return true;
+        });
     }
 
     @Override
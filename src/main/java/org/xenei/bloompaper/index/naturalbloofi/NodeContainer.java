@@ -29,12 +29,6 @@ public abstract class NodeContainer {
         return children != null && !children.isEmpty();
     }
 
-    final void searchChildren(Node head, Consumer<Node> consumer) {
-        if (hasChildren()) {
-            children.tailSet(head).forEach(consumer);
-        }
-    }
-
     final void forChildren(Consumer<Node> consumer) {
         if (hasChildren()) {
             children.forEach(consumer);
@@ -43,11 +37,7 @@ public abstract class NodeContainer {
 
     final void addChild(Node node) {
         if (children == null) {
-            synchronized (this) {
-                if (children == null) {
-                    children = new TreeSet<Node>();
-                }
-            }
+            children = new TreeSet<Node>();
         }
         List<Node> nodeChildren = new ArrayList<Node>();
         for (Node n : children) {
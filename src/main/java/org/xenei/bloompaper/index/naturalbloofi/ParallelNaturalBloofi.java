@@ -0,0 +1,21 @@
+package org.xenei.bloompaper.index.naturalbloofi;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.ParallelSearch;
+
+/**
+ * A NaturalBloofi that searches the matching buckets in parallel on virtual threads, or on the
+ * common ForkJoinPool if virtual threads are not available.
+ */
+public class ParallelNaturalBloofi extends NaturalBloofi {
+
+    public ParallelNaturalBloofi(int population, Shape shape) {
+        super(population, shape);
+        setParallel(new ParallelSearch(ParallelSearch.virtualThreads(), false));
+    }
+
+    @Override
+    public String getName() {
+        return "NaturalBloofi Parallel";
+    }
+}
@@ -1,23 +1,54 @@
 package org.xenei.bloompaper.index.naturalbloofi;
 
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.xenei.bloompaper.index.Traversal;
 
-public class Searcher implements Consumer<Node> {
-    private final Consumer<Node> baseConsumer;
+/**
+ * Visits the nodes below a container that contain the target.  The children of a matching node
+ * are pushed onto the traversal frontier rather than searched recursively.
+ */
+public class Searcher implements Traversal.Visitor<NodeContainer> {
+    private final Predicate<Node> baseConsumer;
     final Node target;
 
-    public Searcher(Consumer<Node> baseConsumer, BloomFilter filter) {
+    /**
+     * Constructor.
+     * @param baseConsumer the predicate that accepts the matching nodes and returns false to stop.
+     * @param filter the filter to search for.
+     */
+    public Searcher(Predicate<Node> baseConsumer, BloomFilter filter) {
         this.baseConsumer = baseConsumer;
         target = new Node(null, filter, -2);
     }
 
+    /**
+     * Searches the children of the container.
+     * @param order the order to visit the nodes in.
+     * @param container the container to search.
+     * @return true if the search completed, false if the consumer stopped it.
+     */
+    public boolean search(Traversal.Order order, NodeContainer container) {
+        return Traversal.run(order, container, this);
+    }
+
     @Override
-    public void accept(Node node) {
-        if (node.getLog() >= target.getLog() && node.contains(target)) {
-            baseConsumer.accept(node);
-            node.searchChildren(target, this);
+    public boolean visit(NodeContainer container, Traversal<NodeContainer> frontier) {
+        if (container instanceof Node) {
+            Node node = (Node) container;
+            if (node.getLog() < target.getLog() || !node.contains(target)) {
+                return true;
+            }
+            if (!baseConsumer.test(node)) {
+                return false;
+            }
+        }
+        if (container.hasChildren()) {
+            for (Node child : container.children.tailSet(target)) {
+                frontier.push(child);
+            }
         }
+        return true;
     }
 }
@@ -0,0 +1,158 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.xenei.bloompaper.index.BitUtils;
+
+/**
+ * A Shard that accepts adds, deletes and searches from multiple threads without locking.
+ * <p>
+ * The filters are stored in a fixed size append only array. A writer reserves the next slot with
+ * a compare and set on the reservation counter and then publishes the filter into the slot.
+ * Deleted filters are replaced by a tombstone which later writers may claim once all the slots
+ * have been reserved. Searches scan the reserved slots and skip slots that are unpublished or
+ * deleted.
+ * </p><p>
+ * The gatekeeper is a counting Bloom filter held in an AtomicIntegerArray. The number of enabled
+ * gatekeeper bits is tracked so that the distance to a filter only needs the enabled bits of the filter.
+ * </p>
+ */
+public class ConcurrentShard {
+
+    private final Shape filterShape;
+    private final AtomicIntegerArray gatekeeper;
+    private final AtomicInteger gatekeeperCardinality;
+    private final AtomicReferenceArray<BloomFilter> filters;
+    private final AtomicInteger reserved;
+    private final AtomicInteger live;
+    private final BloomFilter tombstone;
+
+    public ConcurrentShard(Shape filterShape, int shardSize) {
+        this.filterShape = filterShape;
+        gatekeeper = new AtomicIntegerArray(filterShape.getNumberOfBits());
+        gatekeeperCardinality = new AtomicInteger();
+        filters = new AtomicReferenceArray<BloomFilter>(shardSize);
+        reserved = new AtomicInteger();
+        live = new AtomicInteger();
+        tombstone = new SimpleBloomFilter(filterShape);
+    }
+
+    public boolean hasSpace() {
+        return live.get() < filters.length();
+    }
+
+    /**
+     * Calculates the Hamming distance between the gatekeeper and the sharding filter.
+     * @param filterHasher the sharding hasher for the filter.
+     * @return the Hamming distance.
+     */
+    public int distance(Hasher filterHasher) {
+        int[] shared = { 0, 0 };
+        filterHasher.uniqueIndices(filterShape).forEachIndex(i -> {
+            shared[0]++;
+            if (gatekeeper.get(i) > 0) {
+                shared[1]++;
+            }
+            return true;
+        });
+        return gatekeeperCardinality.get() + shared[0] - 2 * shared[1];
+    }
+
+    public boolean contains(Hasher filterHasher) {
+        return filterHasher.indices(filterShape).forEachIndex(i -> gatekeeper.get(i) > 0);
+    }
+
+    /**
+     * Adds a filter if there is space.
+     * @param filter the filter to add.
+     * @param filterHasher the sharding hasher for the filter.
+     * @return true if the filter was added, false if the shard is full.
+     */
+    public boolean add(BloomFilter filter, Hasher filterHasher) {
+        int slot = reserve();
+        if (slot < 0) {
+            return false;
+        }
+        filterHasher.uniqueIndices(filterShape).forEachIndex(i -> {
+            if (gatekeeper.incrementAndGet(i) == 1) {
+                gatekeeperCardinality.incrementAndGet();
+            }
+            return true;
+        });
+        filters.set(slot, filter);
+        return true;
+    }
+
+    /**
+     * Reserves a slot for a new filter.  The slot contains either null or the tombstone when it is returned.
+     * @return the reserved slot or -1 if the shard is full.
+     */
+    private int reserve() {
+        while (true) {
+            int current = live.get();
+            if (current >= filters.length()) {
+                return -1;
+            }
+            if (live.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        // a live count has been reserved so a fresh slot or a tombstone is available.
+        while (true) {
+            int next = reserved.get();
+            if (next < filters.length()) {
+                if (reserved.compareAndSet(next, next + 1)) {
+                    return next;
+                }
+            } else {
+                for (int i = 0; i < filters.length(); i++) {
+                    if (filters.get(i) == tombstone && filters.compareAndSet(i, tombstone, null)) {
+                        return i;
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean delete(BloomFilter filter, Hasher filterHasher) {
+        BitUtils.BufferCompare comp = new BitUtils.BufferCompare(filter, BitUtils.BufferCompare.exact);
+        int limit = reserved.get();
+        for (int i = 0; i < limit; i++) {
+            BloomFilter candidate = filters.get(i);
+            if (candidate != null && candidate != tombstone && comp.matches(candidate)
+                    && filters.compareAndSet(i, candidate, tombstone)) {
+                filterHasher.uniqueIndices(filterShape).forEachIndex(idx -> {
+                    if (gatekeeper.decrementAndGet(idx) == 0) {
+                        gatekeeperCardinality.decrementAndGet();
+                    }
+                    return true;
+                });
+                live.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        int limit = reserved.get();
+        for (int i = 0; i < limit; i++) {
+            BloomFilter candidate = filters.get(i);
+            if (candidate != null && candidate != tombstone && candidate.contains(filter)) {
+                consumer.accept(candidate);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConcurrentShard n=%s", live.get());
+    }
+}
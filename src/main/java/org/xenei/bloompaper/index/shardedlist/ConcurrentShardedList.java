@@ -0,0 +1,118 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.BitUtils;
+import org.xenei.bloompaper.index.BloomIndex;
+
+/**
+ * A ShardedList that may be used by multiple threads without external locking.
+ * <p>
+ * The shards are {@link ConcurrentShard}s held in a copy on write array. When every shard is full
+ * a writer creates a new shard and installs it with a compare and set on the array. If another
+ * writer installed a shard first the add is retried against the new array.
+ * </p>
+ */
+public class ConcurrentShardedList extends BloomIndex {
+    private final static int shardSize = 10000;
+    private final AtomicReference<ConcurrentShard[]> root;
+    private final AtomicInteger count;
+    private final Shape filterShape;
+    private final int maxShardSize;
+
+    public ConcurrentShardedList(int population, Shape shape) {
+        this(population, shape, shardSize);
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     * @param maxShardSize the number of filters in each shard.
+     */
+    public ConcurrentShardedList(int population, Shape shape, int maxShardSize) {
+        super(population, shape);
+        this.maxShardSize = maxShardSize;
+        int limit = (population / maxShardSize) + 1;
+        filterShape = Shape.fromNP(maxShardSize * shape.getNumberOfHashFunctions(), 0.1);
+        ConcurrentShard[] shards = new ConcurrentShard[limit];
+        for (int i = 0; i < limit; i++) {
+            shards[i] = new ConcurrentShard(filterShape, maxShardSize);
+        }
+        root = new AtomicReference<ConcurrentShard[]>(shards);
+        count = new AtomicInteger();
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
+        while (true) {
+            ConcurrentShard[] shards = root.get();
+            ConcurrentShard candidate = null;
+            int dist = Integer.MAX_VALUE;
+            for (ConcurrentShard shard : shards) {
+                if (shard.hasSpace()) {
+                    int candidateDist = shards.length == 1 ? 0 : shard.distance(filterHasher);
+                    if (dist > candidateDist) {
+                        dist = candidateDist;
+                        candidate = shard;
+                    }
+                }
+            }
+            if (candidate == null) {
+                // no space
+                ConcurrentShard[] expanded = Arrays.copyOf(shards, shards.length + 1);
+                candidate = new ConcurrentShard(filterShape, maxShardSize);
+                expanded[shards.length] = candidate;
+                if (!root.compareAndSet(shards, expanded)) {
+                    continue;
+                }
+            }
+            if (candidate.add(filter, filterHasher)) {
+                count.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
+        for (ConcurrentShard candidate : root.get()) {
+            if (candidate.contains(filterHasher)) {
+                if (candidate.delete(filter, filterHasher)) {
+                    count.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
+        for (ConcurrentShard candidate : root.get()) {
+            if (candidate.contains(filterHasher)) {
+                candidate.doSearch(consumer, filter);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "ConcurrentShardedList";
+    }
+
+    @Override
+    public int count() {
+        return count.get();
+    }
+
+}
@@ -0,0 +1,20 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.ExactMatchIndex;
+
+/**
+ * A ShardedList that keeps the shard holding each filter in an {@link ExactMatchIndex} so that
+ * a delete goes straight to the shard instead of trying every shard whose gatekeeper matches.
+ */
+public class ExactShardedList extends ShardedList {
+
+    public ExactShardedList(int population, Shape shape) {
+        super(population, shape, false, true);
+    }
+
+    @Override
+    public String getName() {
+        return "ShardedList Exact";
+    }
+}
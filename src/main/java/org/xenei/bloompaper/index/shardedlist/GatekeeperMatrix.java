@@ -0,0 +1,133 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+
+/**
+ * The enabled bits of the shard gatekeepers in a transposed bit matrix.
+ * <p>
+ * As in FlatBloofi each block of 64 shards holds one long for each bit of the gatekeeper Shape,
+ * bit {@code j} of {@code blocks[b][k]} is set when gatekeeper bit {@code k} is enabled in shard
+ * {@code 64 * b + j}.  The candidate shards for a query are found by ANDing the columns of the
+ * query bits, and the Hamming distance from a query to every shard in a block is found from the
+ * same columns and the cardinality of each gatekeeper.
+ * </p>
+ */
+final class GatekeeperMatrix {
+    private final int numberOfBits;
+    private long[][] blocks;
+    private int[] cardinality;
+    private int shards;
+
+    /**
+     * Constructor.
+     * @param numberOfBits the number of bits in the gatekeeper Shape.
+     */
+    GatekeeperMatrix(int numberOfBits) {
+        this.numberOfBits = numberOfBits;
+        blocks = new long[0][];
+        cardinality = new int[0];
+        shards = 0;
+    }
+
+    /**
+     * Adds an empty gatekeeper.
+     * @return the index of the shard.
+     */
+    int addShard() {
+        if (shards == cardinality.length) {
+            cardinality = Arrays.copyOf(cardinality, Math.max(Long.SIZE, shards * 2));
+        }
+        if (BitMap.getLongIndex(shards) == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blocks.length + 1);
+            blocks[blocks.length - 1] = new long[numberOfBits];
+        }
+        return shards++;
+    }
+
+    /**
+     * Marks gatekeeper bits as enabled.
+     * @param shard the index of the shard.
+     * @param indices the enabled bits, bits that are already enabled are ignored.
+     */
+    void set(int shard, int[] indices) {
+        long[] block = blocks[BitMap.getLongIndex(shard)];
+        long mask = BitMap.getLongBit(shard);
+        for (int k : indices) {
+            if ((block[k] & mask) == 0) {
+                block[k] |= mask;
+                cardinality[shard]++;
+            }
+        }
+    }
+
+    /**
+     * Marks a gatekeeper bit as not enabled.
+     * @param shard the index of the shard.
+     * @param k the bit that is no longer enabled.
+     */
+    void clear(int shard, int k) {
+        long[] block = blocks[BitMap.getLongIndex(shard)];
+        long mask = BitMap.getLongBit(shard);
+        if ((block[k] & mask) != 0) {
+            block[k] &= ~mask;
+            cardinality[shard]--;
+        }
+    }
+
+    /**
+     * Reports each shard whose gatekeeper has all the bits enabled.
+     * @param indices the query bits.
+     * @param consumer the consumer of the shard indices.
+     */
+    void candidates(int[] indices, IntConsumer consumer) {
+        for (int b = 0; b < blocks.length; b++) {
+            long[] block = blocks[b];
+            long w = b == blocks.length - 1 && (shards & 63) != 0 ? (1L << (shards & 63)) - 1 : ~0L;
+            for (int l = 0; l < indices.length && w != 0; l++) {
+                w &= block[indices[l]];
+            }
+            while (w != 0) {
+                consumer.accept(Long.SIZE * b + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the shard whose gatekeeper has the smallest Hamming distance to the query.  Ties go
+     * to the lowest shard index.
+     * @param indices the query bits, without duplicates.
+     * @param accept the predicate that selects the shards that may be returned.
+     * @return the index of the closest shard or -1 if no shard is accepted.
+     */
+    int closest(int[] indices, IntPredicate accept) {
+        int result = -1;
+        int best = Integer.MAX_VALUE;
+        int[] common = new int[Long.SIZE];
+        for (int b = 0; b < blocks.length; b++) {
+            long[] block = blocks[b];
+            Arrays.fill(common, 0);
+            for (int k : indices) {
+                long w = block[k];
+                while (w != 0) {
+                    common[Long.numberOfTrailingZeros(w)]++;
+                    w &= w - 1;
+                }
+            }
+            int limit = Math.min(Long.SIZE, shards - Long.SIZE * b);
+            for (int j = 0; j < limit; j++) {
+                int shard = Long.SIZE * b + j;
+                int distance = cardinality[shard] + indices.length - 2 * common[j];
+                if (distance < best && accept.test(shard)) {
+                    best = distance;
+                    result = shard;
+                }
+            }
+        }
+        return result;
+    }
+}
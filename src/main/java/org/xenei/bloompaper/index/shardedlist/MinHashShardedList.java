@@ -0,0 +1,184 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.BitUtils;
+import org.xenei.bloompaper.index.BloomIndex;
+import org.xenei.bloompaper.index.ExactMatchIndex;
+
+/**
+ * A sharded list that places similar filters in the same shard.
+ * <p>
+ * The {@link ShardedList} places filters by a hash of the whole bit map so similar filters land in
+ * unrelated shards.  Here a MinHash signature of the enabled bits selects one of a fixed number of
+ * buckets, filters whose enabled bits have a high Jaccard similarity are likely to select the same
+ * bucket.  Each bucket fills one shard at a time.  When it is full the bucket reopens one of its
+ * shards that deletes have left with space, or starts a new shard if there is none.
+ * </p><p>
+ * Each shard is fronted by the union of its filters so a search only scans the shards whose union
+ * contains the target.  When the filters are correlated the unions stay small and most shards
+ * are skipped.
+ * </p>
+ */
+public class MinHashShardedList extends BloomIndex {
+    private final static int shardSize = 10000;
+    /**
+     * The number of MinHash values combined into the bucket key.
+     */
+    private final static int ROWS = 2;
+    private static final long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL };
+
+    private final List<UnionShard> root;
+    /**
+     * The index in root of the shard each bucket is filling.
+     */
+    private final int[] open;
+    /**
+     * The bucket that owns each shard in root.
+     */
+    private int[] owner;
+    /**
+     * For each bucket a stack of the shards, other than the open one, that have space.
+     */
+    private final int[][] spare;
+    private final int[] spareSize;
+    private final ExactMatchIndex<Integer> shards;
+    private int count;
+
+    public MinHashShardedList(int population, Shape shape) {
+        super(population, shape);
+        int buckets = (population / shardSize) + 1;
+        root = new ArrayList<UnionShard>(buckets);
+        open = new int[buckets];
+        owner = new int[buckets];
+        spare = new int[buckets][];
+        spareSize = new int[buckets];
+        for (int i = 0; i < buckets; i++) {
+            root.add(new UnionShard(shape, shardSize));
+            open[i] = i;
+            owner[i] = i;
+            spare[i] = new int[4];
+        }
+        shards = new ExactMatchIndex<Integer>();
+        count = 0;
+    }
+
+    /**
+     * Selects the bucket for a filter from the MinHash signature of its enabled bits.
+     * @param filter the filter.
+     * @return the bucket.
+     */
+    int bucket(BloomFilter filter) {
+        if (open.length == 1) {
+            return 0;
+        }
+        long[] signature = new long[ROWS];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        filter.forEachIndex(i -> {
+            for (int r = 0; r < ROWS; r++) {
+                long h = BitUtils.fmix64((i + 1) * SEEDS[r]) >>> 1;
+                if (h < signature[r]) {
+                    signature[r] = h;
+                }
+            }
+            return true;
+        });
+        long key = 0;
+        for (long value : signature) {
+            key = BitUtils.fmix64(key ^ value);
+        }
+        return (int) Long.remainderUnsigned(key, open.length);
+    }
+
+    @Override
+    public void add(BloomFilter filter) {
+        int bucket = bucket(filter);
+        UnionShard shard = root.get(open[bucket]);
+        if (!shard.hasSpace()) {
+            if (spareSize[bucket] > 0) {
+                open[bucket] = spare[bucket][--spareSize[bucket]];
+                shard = root.get(open[bucket]);
+            } else {
+                open[bucket] = root.size();
+                shard = new UnionShard(shape, shardSize);
+                root.add(shard);
+                if (owner.length == open[bucket]) {
+                    owner = Arrays.copyOf(owner, owner.length * 2);
+                }
+                owner[open[bucket]] = bucket;
+            }
+        }
+        long[] bitMap = filter.asBitMapArray();
+        shard.add(filter, bitMap);
+        shards.put(ExactMatchIndex.hash(bitMap), open[bucket]);
+        count++;
+    }
+
+    @Override
+    public boolean delete(BloomFilter filter) {
+        // the shard delete confirms the match.
+        Integer shard = shards.remove(ExactMatchIndex.hash(filter), s -> {
+            boolean full = !root.get(s).hasSpace();
+            if (root.get(s).delete(filter)) {
+                if (full) {
+                    reopen(s);
+                }
+                return true;
+            }
+            return false;
+        });
+        if (shard == null) {
+            return false;
+        }
+        count--;
+        return true;
+    }
+
+    /**
+     * Makes a shard that was full available to its bucket again.  The open shard of the bucket is
+     * not stacked since it is used first anyway.
+     */
+    private void reopen(int shard) {
+        int bucket = owner[shard];
+        if (open[bucket] != shard) {
+            if (spareSize[bucket] == spare[bucket].length) {
+                spare[bucket] = Arrays.copyOf(spare[bucket], spareSize[bucket] * 2);
+            }
+            spare[bucket][spareSize[bucket]++] = shard;
+        }
+    }
+
+    @Override
+    protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        long[] target = filter.asBitMapArray();
+        for (UnionShard shard : root) {
+            if (shard.size() > 0 && shard.mayContain(target)) {
+                shard.search(consumer, filter);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of shards, including empty ones.
+     * @return the number of shards.
+     */
+    int shardCount() {
+        return root.size();
+    }
+
+    @Override
+    public String getName() {
+        return "ShardedList MinHash";
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+}
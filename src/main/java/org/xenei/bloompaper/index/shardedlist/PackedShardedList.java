@@ -0,0 +1,19 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+
+/**
+ * A ShardedList whose shards store the filters in packed bit map arrays so that a shard scan is
+ * a tight loop over a {@code long[]}.  The packed storage of each shard grows as filters are added.
+ */
+public class PackedShardedList extends ShardedList {
+
+    public PackedShardedList(int population, Shape shape) {
+        super(population, shape, true, false);
+    }
+
+    @Override
+    public String getName() {
+        return "ShardedList Packed";
+    }
+}
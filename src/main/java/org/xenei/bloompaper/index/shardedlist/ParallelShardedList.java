@@ -0,0 +1,21 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.ParallelSearch;
+
+/**
+ * A ShardedList that searches the matching shards in parallel on virtual threads, or on the
+ * common ForkJoinPool if virtual threads are not available.
+ */
+public class ParallelShardedList extends ShardedList {
+
+    public ParallelShardedList(int population, Shape shape) {
+        super(population, shape);
+        setParallel(new ParallelSearch(ParallelSearch.virtualThreads(), false));
+    }
+
+    @Override
+    public String getName() {
+        return "ShardedList Parallel";
+    }
+}
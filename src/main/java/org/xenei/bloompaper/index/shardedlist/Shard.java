@@ -5,57 +5,145 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 
-import org.apache.commons.collections4.bloomfilter.ArrayCountingBloomFilter;
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
-import org.apache.commons.collections4.bloomfilter.CountingBloomFilter;
 import org.apache.commons.collections4.bloomfilter.Hasher;
+import org.apache.commons.collections4.bloomfilter.IndexProducer;
 import org.apache.commons.collections4.bloomfilter.SetOperations;
 import org.apache.commons.collections4.bloomfilter.Shape;
 import org.xenei.bloompaper.index.BitUtils;
+import org.xenei.bloompaper.index.PackedFilters;
 
+/**
+ * A shard of a ShardedList.  The filters are kept in a List unless the shard is created with a
+ * Shape for the stored filters, in which case they are kept in a {@link PackedFilters}.  The packed
+ * storage starts small and grows as filters are added.
+ * <p>
+ * The gatekeeper is a counting Bloom filter kept as an array of cells, one for each bit of the
+ * gatekeeper Shape, so that a single bit can be tested without going through an IndexProducer.
+ * </p>
+ */
 public class Shard {
+    /**
+     * The initial capacity of the packed storage.
+     */
+    private static final int INITIAL_CAPACITY = 64;
 
-    private final CountingBloomFilter gatekeeper;
+    private final Shape filterShape;
+    /*
+     * cells[bit] is the number of filters in the shard whose sharding Hasher enables the bit.
+     */
+    private final int[] cells;
     private final List<BloomFilter> filters;
+    private final PackedFilters packed;
     private final int shardSize;
 
+    /**
+     * Constructor for a shard that keeps the filters in a List.
+     * @param filterShape the Shape of the gatekeeper filter.
+     * @param shardSize the maximum number of filters in the shard.
+     */
     public Shard(Shape filterShape, int shardSize) {
-        gatekeeper = new ArrayCountingBloomFilter(filterShape);
+        this.filterShape = filterShape;
+        cells = new int[filterShape.getNumberOfBits()];
         this.shardSize = shardSize;
         filters = new ArrayList<>(shardSize);
+        packed = null;
+    }
+
+    /**
+     * Constructor for a shard that keeps the filters in a PackedFilters.
+     * @param shape the Shape of the stored filters.
+     * @param filterShape the Shape of the gatekeeper filter.
+     * @param shardSize the maximum number of filters in the shard.
+     */
+    public Shard(Shape shape, Shape filterShape, int shardSize) {
+        this.filterShape = filterShape;
+        cells = new int[filterShape.getNumberOfBits()];
+        this.shardSize = shardSize;
+        filters = null;
+        packed = new PackedFilters(shape, Math.min(shardSize, INITIAL_CAPACITY));
+    }
+
+    private int size() {
+        return packed == null ? filters.size() : packed.size();
     }
 
     public boolean hasSpace() {
-        return filters.size() < shardSize;
+        return size() < shardSize;
     }
 
     public int distance(BloomFilter filter) {
-        return SetOperations.hammingDistance(gatekeeper, filter);
+        IndexProducer enabled = p -> {
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] > 0 && !p.test(i)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+        return SetOperations.hammingDistance(BitMapProducer.fromIndexProducer(enabled, cells.length), filter);
     }
 
     public boolean contains(Hasher filterHasher) {
-        return gatekeeper.contains(filterHasher);
+        return filterHasher.uniqueIndices(filterShape).forEachIndex(i -> cells[i] > 0);
+    }
+
+    /**
+     * Determines if a bit of the gatekeeper is enabled.
+     * @param index the bit of the gatekeeper Shape.
+     * @return true if any filter in the shard enabled the bit.
+     */
+    public boolean isEnabled(int index) {
+        return cells[index] > 0;
     }
 
     public void add(BloomFilter filter, Hasher filterHasher) {
-        gatekeeper.merge(filterHasher);
-        filters.add(filter);
+        filterHasher.uniqueIndices(filterShape).forEachIndex(i -> {
+            cells[i]++;
+            return true;
+        });
+        if (packed == null) {
+            filters.add(filter);
+        } else {
+            packed.add(filter);
+        }
     }
 
     public boolean delete(BloomFilter filter, Hasher filterHasher) {
+        if (packed != null) {
+            int i = packed.indexOf(filter);
+            if (i > -1) {
+                packed.remove(i);
+                removeGatekeeper(filterHasher);
+                return true;
+            }
+            return false;
+        }
         BitUtils.BufferCompare comp = new BitUtils.BufferCompare(filter, BitUtils.BufferCompare.exact);
         Iterator<BloomFilter> iter = filters.iterator();
         while (iter.hasNext()) {
             if (comp.matches(iter.next())) {
                 iter.remove();
-                gatekeeper.remove(filterHasher);
+                removeGatekeeper(filterHasher);
                 return true;
             }
         }
         return false;
     }
 
+    private void removeGatekeeper(Hasher filterHasher) {
+        filterHasher.uniqueIndices(filterShape).forEachIndex(i -> {
+            cells[i]--;
+            return true;
+        });
+    }
+
     protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        if (packed != null) {
+            packed.search(i -> consumer.accept(packed.get(i)), filter);
+            return;
+        }
         for (BloomFilter candidate : filters) {
             if (candidate.contains(filter)) {
                 consumer.accept(candidate);
@@ -65,6 +153,6 @@ public class Shard {
 
     @Override
     public String toString() {
-        return String.format("Shard n=%s", filters.size());
+        return String.format("Shard n=%s", size());
     }
 }
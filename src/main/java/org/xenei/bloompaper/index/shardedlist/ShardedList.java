@@ -7,99 +7,141 @@ import java.util.function.Consumer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
 import org.apache.commons.collections4.bloomfilter.Hasher;
 import org.apache.commons.collections4.bloomfilter.Shape;
-import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
 import org.xenei.bloompaper.index.BitUtils;
 import org.xenei.bloompaper.index.BloomIndex;
+import org.xenei.bloompaper.index.ExactMatchIndex;
+import org.xenei.bloompaper.index.ParallelSearch;
 
 /**
  * A multidimentional Bloom filter that constructs a list by creating sharded sub lists.
  * Each shard is fronted by a Bloom filter to determine if the shard should be searched.  Each
  * filter inserted in the list is used to generate an internal Bloom filter.
  * When all shards are full a new shard is created.
+ * <p>
+ * The enabled bits of the gatekeepers are kept in a {@link GatekeeperMatrix} so the shards to
+ * search and the closest shard for an insert are found with column operations rather than by
+ * checking every gatekeeper.
+ * </p><p>
+ * A delete tries each shard whose gatekeeper contains the filter.  {@link ExactShardedList} keeps
+ * the shard holding each filter in an {@link ExactMatchIndex} so a delete goes straight to the shard.
+ * </p><p>
+ * The shards keep their filters in Lists.  {@link PackedShardedList} keeps them in packed bit map
+ * arrays instead.
+ * </p>
  */
 public class ShardedList extends BloomIndex {
     private final static int shardSize = 10000;
     private List<Shard> root;
+    private final GatekeeperMatrix gatekeepers;
+    private final ExactMatchIndex<Integer> shards;
     private int count;
     private final Shape filterShape;
+    private ParallelSearch parallel;
+    private final boolean packed;
 
     public ShardedList(int population, Shape shape) {
+        this(population, shape, false, false);
+    }
+
+    /**
+     * Constructor.
+     * @param population the expected number of filters.
+     * @param shape the Shape of the filters.
+     * @param packed true if the shards store the filters in packed bit map arrays.
+     * @param exact true if the shard holding each filter is kept in an {@link ExactMatchIndex}.
+     */
+    protected ShardedList(int population, Shape shape, boolean packed, boolean exact) {
         super(population, shape);
+        this.packed = packed;
         int limit = (population / shardSize) + 1;
         root = new ArrayList<Shard>(limit);
+        shards = exact ? new ExactMatchIndex<Integer>() : null;
         filterShape = Shape.fromNP(shardSize * shape.getNumberOfHashFunctions(), 0.1);
+        gatekeepers = new GatekeeperMatrix(filterShape.getNumberOfBits());
 
         for (int i = 0; i < limit; i++) {
-            root.add(new Shard(filterShape, shardSize));
+            root.add(newShard());
+            gatekeepers.addShard();
         }
         count = 0;
+        parallel = null;
+    }
+
+    private Shard newShard() {
+        return packed ? new Shard(shape, filterShape, shardSize) : new Shard(filterShape, shardSize);
+    }
+
+    /**
+     * Enables parallel search.  The shards whose gatekeeper matches the target are searched
+     * concurrently by the ParallelSearch.
+     * @param parallel the ParallelSearch to use, or {@code null} to search on the calling thread.
+     */
+    public void setParallel(ParallelSearch parallel) {
+        this.parallel = parallel;
     }
 
     @Override
     public void add(BloomFilter filter) {
-        int dist = Integer.MAX_VALUE;
-        int bucket = -1;
-        Shard candidate = null;
         Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
-        if (root.size() == 1) {
-            candidate = root.get(0);
-            if (candidate.hasSpace()) {
-                bucket = 0;
-            }
-        } else {
-            BloomFilter filterFilter = new SimpleBloomFilter(filterShape);
-            filterFilter.merge(filterHasher);
-            for (int i = 0; i < root.size(); i++) {
-                candidate = root.get(i);
-                if (candidate.hasSpace()) {
-                    int candidateDist = candidate.distance(filterFilter);
-                    if (dist > candidateDist) {
-                        dist = candidateDist;
-                        bucket = i;
-                    }
-                }
-            }
-        }
+        int[] indices = filterHasher.uniqueIndices(filterShape).asIndexArray();
+        int bucket = gatekeepers.closest(indices, i -> root.get(i).hasSpace());
         if (bucket == -1) {
             // no space
-            bucket = root.size();
-            candidate = new Shard(filterShape, shardSize);
-            root.add(candidate);
-        } else {
-            candidate = root.get(bucket);
+            root.add(newShard());
+            bucket = gatekeepers.addShard();
+        }
+        root.get(bucket).add(filter, filterHasher);
+        gatekeepers.set(bucket, indices);
+        if (shards != null) {
+            shards.put(ExactMatchIndex.hash(filter), bucket);
         }
-        candidate.add(filter, filterHasher);
         count++;
     }
 
     @Override
     public boolean delete(BloomFilter filter) {
         Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
-        Shard candidate = null;
-        for (int i = 0; i < root.size(); i++) {
-            candidate = root.get(i);
-            if (candidate.contains(filterHasher)) {
-                if (candidate.delete(filter, filterHasher)) {
-                    count--;
-                    return true;
+        int bucket = -1;
+        if (shards != null) {
+            // the shard delete confirms the match.
+            Integer found = shards.remove(ExactMatchIndex.hash(filter), b -> root.get(b).delete(filter, filterHasher));
+            if (found != null) {
+                bucket = found;
+            }
+        } else {
+            for (int i = 0; i < root.size() && bucket == -1; i++) {
+                Shard shard = root.get(i);
+                if (shard.contains(filterHasher) && shard.delete(filter, filterHasher)) {
+                    bucket = i;
                 }
             }
         }
-        return false;
+        if (bucket == -1) {
+            return false;
+        }
+        Shard candidate = root.get(bucket);
+        for (int k : filterHasher.uniqueIndices(filterShape).asIndexArray()) {
+            if (!candidate.isEnabled(k)) {
+                gatekeepers.clear(bucket, k);
+            }
+        }
+        count--;
+        return true;
     }
 
     @Override
     protected void doSearch(Consumer<BloomFilter> consumer, BloomFilter filter) {
         Hasher filterHasher = BitUtils.ShardingHasherFactory.asHasher(filter);
+        int[] indices = filterHasher.uniqueIndices(filterShape).asIndexArray();
 
-        Shard candidate = null;
-
-        for (int i = 0; i < root.size(); i++) {
-            candidate = root.get(i);
-            if (candidate.contains(filterHasher)) {
-                candidate.doSearch(consumer, filter);
-            }
+        if (parallel != null) {
+            List<Shard> candidates = new ArrayList<Shard>();
+            gatekeepers.candidates(indices, i -> candidates.add(root.get(i)));
+            parallel.search(candidates, (shard, c) -> shard.doSearch(c, filter), consumer);
+            return;
         }
+
+        gatekeepers.candidates(indices, i -> root.get(i).doSearch(consumer, filter));
     }
 
     @Override
@@ -0,0 +1,98 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMap;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.xenei.bloompaper.index.PackedFilters;
+
+/**
+ * A shard that is fronted by the union of the bit maps of its filters.  A shard only holds
+ * filters that contain the target when the union does.
+ * <p>
+ * The number of filters that set each bit is kept in an array of counts.  Adds and deletes only
+ * update the counts of the bits of their filter and set or clear a bit of the union when its count
+ * leaves or reaches zero, so that a search never changes the shard.
+ * </p>
+ */
+final class UnionShard {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final PackedFilters filters;
+    private final int shardSize;
+    private final long[] union;
+    /**
+     * counts[bit] is the number of filters in the shard with the bit set.
+     */
+    private final int[] counts;
+
+    /**
+     * Constructor.
+     * @param shape the Shape of the stored filters.
+     * @param shardSize the maximum number of filters in the shard.
+     */
+    UnionShard(Shape shape, int shardSize) {
+        this.shardSize = shardSize;
+        filters = new PackedFilters(shape, Math.min(shardSize, INITIAL_CAPACITY), true);
+        union = new long[BitMap.numberOfBitMaps(shape.getNumberOfBits())];
+        counts = new int[shape.getNumberOfBits()];
+    }
+
+    boolean hasSpace() {
+        return filters.size() < shardSize;
+    }
+
+    int size() {
+        return filters.size();
+    }
+
+    void add(BloomFilter filter, long[] bitMap) {
+        filters.add(filter);
+        for (int i = 0; i < bitMap.length && i < union.length; i++) {
+            union[i] |= bitMap[i];
+            for (long word = bitMap[i]; word != 0; word &= word - 1) {
+                counts[i * Long.SIZE + Long.numberOfTrailingZeros(word)]++;
+            }
+        }
+    }
+
+    boolean delete(BloomFilter filter) {
+        int i = filters.indexOf(filter);
+        if (i > -1) {
+            filters.remove(i);
+            filter.forEachIndex(bit -> {
+                if (--counts[bit] == 0) {
+                    union[BitMap.getLongIndex(bit)] &= ~BitMap.getLongBit(bit);
+                }
+                return true;
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the union contains all the bits of the target.
+     * @param target the bit map of the target.
+     * @return true if the shard may hold matching filters.
+     */
+    boolean mayContain(long[] target) {
+        for (int i = 0; i < target.length; i++) {
+            long word = i < union.length ? union[i] : 0L;
+            if ((target[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void search(Consumer<BloomFilter> consumer, BloomFilter filter) {
+        filters.search(i -> consumer.accept(filters.get(i)), filter);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UnionShard n=%s", filters.size());
+    }
+}
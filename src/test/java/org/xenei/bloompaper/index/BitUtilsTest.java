@@ -0,0 +1,114 @@
+package org.xenei.bloompaper.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.junit.Test;
+
+public class BitUtilsTest {
+
+    /**
+     * The bit at a time calculation the word level calculation replaces.
+     */
+    private static double expectedLog(long[] bits) {
+        int top = BitUtils.maxSet(bits);
+        if (top < 0) {
+            return 0;
+        }
+        double result = top;
+        for (int bit = BitUtils.maxSetBefore(bits, top); bit >= 0 && top - bit <= 25; bit = BitUtils
+                .maxSetBefore(bits, bit)) {
+            result += Math.pow(2.0, bit - top);
+        }
+        return result;
+    }
+
+    @Test
+    public void testMaxSet() {
+        assertEquals(-1, BitUtils.maxSet(new long[] { 0, 0 }));
+        assertEquals(0, BitUtils.maxSet(new long[] { 1, 0 }));
+        assertEquals(127, BitUtils.maxSet(new long[] { 1, Long.MIN_VALUE }));
+        assertEquals(70, BitUtils.maxSet(new long[] { -1, 0x40 }));
+    }
+
+    @Test
+    public void testApproximateLog() {
+        assertEquals(0, BitUtils.approximateLog(new long[] { 0, 0 }), 0);
+        assertEquals(1.5, BitUtils.approximateLog(new long[] { 3 }), 0);
+        assertEquals(64.5, BitUtils.approximateLog(new long[] { Long.MIN_VALUE, 1 }), 0);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long[] bits = new long[3];
+            for (int b = 0; b < 17; b++) {
+                int bit = random.nextInt(3 * Long.SIZE);
+                bits[bit / Long.SIZE] |= 1L << bit;
+            }
+            double log = BitUtils.approximateLog(bits);
+            assertEquals(expectedLog(bits), log, 0);
+
+            long[] superset = bits.clone();
+            int bit = random.nextInt(3 * Long.SIZE);
+            superset[bit / Long.SIZE] |= 1L << bit;
+            assertTrue(BitUtils.approximateLog(superset) >= log);
+        }
+    }
+
+    @Test
+    public void testTranspose64() {
+        Random random = new Random(42);
+        long[] matrix = new long[Long.SIZE];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextLong();
+        }
+        long[] transposed = matrix.clone();
+        BitUtils.transpose64(transposed);
+        for (int i = 0; i < Long.SIZE; i++) {
+            for (int j = 0; j < Long.SIZE; j++) {
+                assertEquals(((matrix[i] >>> j) & 1L), ((transposed[j] >>> i) & 1L));
+            }
+        }
+    }
+
+    @Test
+    public void testShardingHash() {
+        Random random = new Random(1);
+        for (int words = 1; words < 8; words++) {
+            Shape shape = Shape.fromKM(17, words * Long.SIZE);
+            for (int n = 0; n < 20; n++) {
+                BloomFilter filter = new SimpleBloomFilter(shape);
+                filter.merge(BitMapProducer.fromBitMapArray(random.longs(words).toArray()));
+                ByteBuffer bb = ByteBuffer.allocate(Long.BYTES * words);
+                filter.forEachBitMap(word -> {
+                    bb.putLong(word);
+                    return true;
+                });
+                long[] hash = MurmurHash3.hash128x64(bb.array());
+                assertArrayEquals(Arrays.toString(filter.asBitMapArray()),
+                        new EnhancedDoubleHasher(hash[0], hash[1]).indices(shape).asIndexArray(),
+                        BitUtils.ShardingHasherFactory.asHasher(filter).indices(shape).asIndexArray());
+            }
+        }
+    }
+
+    @Test
+    public void testFrozenShardingHasher() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        FrozenBloomFilter frozen = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 5, 7 }));
+        BloomFilter simple = new SimpleBloomFilter(shape);
+        simple.merge(frozen);
+        assertArrayEquals(BitUtils.ShardingHasherFactory.asHasher(simple).indices(shape).asIndexArray(),
+                BitUtils.ShardingHasherFactory.asHasher(frozen).indices(shape).asIndexArray());
+    }
+}
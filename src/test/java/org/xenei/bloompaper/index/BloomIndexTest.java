@@ -15,6 +15,7 @@ import org.apache.commons.collections4.bloomfilter.Hasher;
 import org.apache.commons.collections4.bloomfilter.Shape;
 import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
 import org.apache.commons.collections4.bloomfilter.EnhancedDoubleHasher;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -68,6 +69,11 @@ public class BloomIndexTest {
         underTest = constructor.newInstance(INSERT_LIMIT, shape);
     }
 
+    @After
+    public void teardown() {
+        underTest.close();
+    }
+
     @SuppressWarnings("rawtypes")
     @Parameters(name = "{0}")
     public static Collection tests() throws NoSuchMethodException, SecurityException {
@@ -198,4 +204,25 @@ public class BloomIndexTest {
         assertTrue(found);
     }
 
+    @Test
+    public void testBulkLoad() {
+        BloomFilter[] filters = new BloomFilter[HASHER_COUNT];
+        for (int i = 0; i < HASHER_COUNT; i++) {
+            filters[i] = simpleFilter(hasher[i]);
+        }
+        underTest.bulkLoad(filters);
+        assertEquals(HASHER_COUNT, underTest.count());
+        for (int i = 0; i < HASHER_COUNT; i++) {
+            assertEquals("error at position " + i, matches[i], underTest.count(simpleFilter(hasher[i])));
+        }
+
+        // the index still supports updates after a bulk load.
+        underTest.add(simpleFilter(hasher[0]));
+        assertEquals(matches[0] + 1, underTest.count(simpleFilter(hasher[0])));
+        for (int i = 0; i < HASHER_COUNT; i++) {
+            assertTrue(underTest.delete(simpleFilter(hasher[i])));
+        }
+        assertEquals(1, underTest.count());
+    }
+
 }
@@ -0,0 +1,69 @@
+package org.xenei.bloompaper.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+
+public class ConcurrentBloomIndexTest {
+    private final Shape shape = Shape.fromNP(3, 1.0 / 100000);
+
+    @Test
+    public void testConcurrentReadWrite() throws Exception {
+        org.xenei.bloompaper.Test.init();
+        for (String name : new String[] { "FlatBloofi", "NaturalBloofi", "ShardedList", "Hamming" }) {
+            BloomIndex underTest = new ConcurrentBloomIndex(
+                    org.xenei.bloompaper.Test.constructors.get(name).newInstance(1000, shape));
+            List<BloomFilter> stable = new ArrayList<BloomFilter>();
+            for (int i = 0; i < 500; i++) {
+                BloomFilter bf = new TestingBloomFilter(shape);
+                stable.add(bf);
+                underTest.add(bf);
+            }
+            List<BloomFilter> churn = new ArrayList<BloomFilter>();
+            for (int i = 0; i < 20; i++) {
+                churn.add(new TestingBloomFilter(shape));
+            }
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> readers = new ArrayList<Future<?>>();
+                for (int t = 0; t < 3; t++) {
+                    readers.add(executor.submit(() -> {
+                        while (running.get()) {
+                            for (int i = 0; i < stable.size() && running.get(); i += 7) {
+                                assertTrue(name, underTest.count(stable.get(i)) >= 1);
+                            }
+                        }
+                    }));
+                }
+                Future<?> writer = executor.submit(() -> {
+                    for (int round = 0; round < 5; round++) {
+                        churn.forEach(underTest::add);
+                        churn.forEach(bf -> assertTrue(name, underTest.delete(bf)));
+                    }
+                });
+                writer.get(60, TimeUnit.SECONDS);
+                running.set(false);
+                for (Future<?> reader : readers) {
+                    reader.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(name, 500, underTest.count());
+        }
+    }
+}
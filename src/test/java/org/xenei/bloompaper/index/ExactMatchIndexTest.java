@@ -0,0 +1,79 @@
+package org.xenei.bloompaper.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+
+public class ExactMatchIndexTest {
+
+    @Test
+    public void testPutGetRemove() {
+        ExactMatchIndex<String> underTest = new ExactMatchIndex<String>();
+        underTest.put(ExactMatchIndex.hash(new long[] { 1, 2 }), "a");
+        underTest.put(ExactMatchIndex.hash(new long[] { 1, 3 }), "b");
+        assertEquals(2, underTest.size());
+        assertEquals("a", underTest.get(ExactMatchIndex.hash(new long[] { 1, 2 }), s -> true));
+        assertEquals("b", underTest.get(ExactMatchIndex.hash(new long[] { 1, 3 }), s -> true));
+        assertNull(underTest.get(ExactMatchIndex.hash(new long[] { 1, 4 }), s -> true));
+        // the predicate confirms the match.
+        assertNull(underTest.get(ExactMatchIndex.hash(new long[] { 1, 2 }), "b"::equals));
+
+        assertEquals("a", underTest.remove(ExactMatchIndex.hash(new long[] { 1, 2 }), s -> true));
+        assertNull(underTest.get(ExactMatchIndex.hash(new long[] { 1, 2 }), s -> true));
+        assertNull(underTest.remove(ExactMatchIndex.hash(new long[] { 1, 2 }), s -> true));
+        assertEquals(1, underTest.size());
+    }
+
+    @Test
+    public void testDuplicates() {
+        long hash = ExactMatchIndex.hash(new long[] { 5 });
+        ExactMatchIndex<Integer> underTest = new ExactMatchIndex<Integer>();
+        underTest.put(hash, 1);
+        underTest.put(hash, 2);
+        assertFalse(underTest.remove(hash, 3));
+        assertTrue(underTest.remove(hash, 2));
+        assertEquals(Integer.valueOf(1), underTest.get(hash, i -> true));
+        assertTrue(underTest.move(hash, 1, 7));
+        assertEquals(Integer.valueOf(7), underTest.remove(hash, i -> true));
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void testHash() {
+        assertEquals(ExactMatchIndex.hash(new long[] { 9 }), ExactMatchIndex.hash(new long[] { 9, 0, 0 }));
+        assertFalse(ExactMatchIndex.hash(new long[] { 9, 0 }) == ExactMatchIndex.hash(new long[] { 0, 9 }));
+        assertEquals(ExactMatchIndex.hash(new long[] { 3, 9 }), ExactMatchIndex.hash(new long[] { 7, 3, 9, 7 }, 1, 2));
+        Shape shape = Shape.fromKM(3, 128);
+        assertEquals(ExactMatchIndex.hash(new long[] { 3, 9 }),
+                ExactMatchIndex.hash(new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 3, 9 }))));
+    }
+
+    @Test
+    public void testGrowAndRemove() {
+        // small key space forces collisions and long probe sequences.
+        Random random = new Random(1);
+        ExactMatchIndex<Integer> underTest = new ExactMatchIndex<Integer>();
+        Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        for (int i = 0; i < 2000; i++) {
+            long hash = random.nextInt(64);
+            underTest.put(hash, i);
+            expected.put(i, hash);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            assertTrue(underTest.remove(expected.remove(i), i));
+        }
+        assertEquals(expected.size(), underTest.size());
+        for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), underTest.get(entry.getValue(), entry.getKey()::equals));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.xenei.bloompaper.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+
+public class PackedFiltersTest {
+    private final Shape shape = Shape.fromNP(3, 1.0 / 100000);
+
+    @Test
+    public void testSearchMatchesContains() {
+        // capacity 1 forces the arrays to grow.
+        PackedFilters underTest = new PackedFilters(shape, 1);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 500; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            underTest.add(bf);
+        }
+        BloomFilter target = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        filters.add(target);
+        underTest.add(target);
+
+        for (BloomFilter query : new BloomFilter[] { target, filters.get(7) }) {
+            List<BloomFilter> expected = new ArrayList<BloomFilter>();
+            filters.stream().filter(f -> f.contains(query)).forEach(expected::add);
+            List<BloomFilter> actual = new ArrayList<BloomFilter>();
+            underTest.search(i -> actual.add(underTest.get(i)), query);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        assertRemove(new PackedFilters(shape, 10));
+    }
+
+    @Test
+    public void testRemoveExact() {
+        assertRemove(new PackedFilters(shape, 10, true));
+    }
+
+    private void assertRemove(PackedFilters underTest) {
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 10; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            underTest.add(bf);
+        }
+        assertEquals(3, underTest.indexOf(filters.get(3)));
+        underTest.remove(3);
+        assertEquals(9, underTest.size());
+        assertEquals(-1, underTest.indexOf(filters.get(3)));
+        // the last filter is moved into the free position.
+        assertSame(filters.get(9), underTest.get(3));
+        assertEquals(3, underTest.indexOf(filters.get(9)));
+        underTest.remove(8);
+        assertEquals(8, underTest.size());
+        assertEquals(-1, underTest.indexOf(filters.get(8)));
+    }
+}
@@ -0,0 +1,70 @@
+package org.xenei.bloompaper.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+
+public class ParallelSearchTest {
+    private final Shape shape = Shape.fromNP(3, 1.0 / 100000);
+
+    private List<List<BloomFilter>> partitions() {
+        List<List<BloomFilter>> partitions = new ArrayList<List<BloomFilter>>();
+        for (int p = 0; p < 20; p++) {
+            List<BloomFilter> partition = new ArrayList<BloomFilter>();
+            for (int i = 0; i < 50; i++) {
+                partition.add(new TestingBloomFilter(shape));
+            }
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    private List<BloomFilter> expected(List<List<BloomFilter>> partitions) {
+        List<BloomFilter> expected = new ArrayList<BloomFilter>();
+        partitions.forEach(expected::addAll);
+        return expected;
+    }
+
+    @Test
+    public void testOrdered() {
+        List<List<BloomFilter>> partitions = partitions();
+        List<BloomFilter> expected = expected(partitions);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<BloomFilter> actual = new ArrayList<BloomFilter>();
+            new ParallelSearch(executor, true).search(partitions, (p, c) -> p.forEach(c), actual::add);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(expected.get(i), actual.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnordered() {
+        List<List<BloomFilter>> partitions = partitions();
+        List<BloomFilter> expected = expected(partitions);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // ArrayList is not thread safe so lost adds would show up in the size.
+            List<BloomFilter> actual = new ArrayList<BloomFilter>();
+            new ParallelSearch(executor, false).search(partitions, (p, c) -> p.forEach(c), actual::add);
+            assertEquals(expected.size(), actual.size());
+            assertEquals(new HashSet<BloomFilter>(expected), new HashSet<BloomFilter>(actual));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
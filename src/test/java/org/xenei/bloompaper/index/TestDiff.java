@@ -2,7 +2,6 @@ package org.xenei.bloompaper.index;
 
 import org.apache.commons.collections4.bloomfilter.BitMapProducer;
 import org.apache.commons.collections4.bloomfilter.Shape;
-import org.xenei.bloompaper.index.hamming.Node;
 
 public class TestDiff {
     int n = 3;
@@ -22,20 +21,29 @@ public class TestDiff {
         new TestDiff().execute();
     }
 
+    private static String describe(FrozenBloomFilter bf) {
+        StringBuffer sb = new StringBuffer();
+        bf.forEachBitMap((word) -> {
+            sb.append(String.format("%016X", word));
+            return true;
+        });
+
+        return String.format("%s h=%s l=%s, 0x%s", BitUtils.format(bf.asBitMapArray()), bf.cardinality(),
+                BitUtils.approximateLog(bf.asBitMapArray()), sb);
+    }
+
     public void execute() {
-        Node tNode = new Node(target);
-        Node fNode = new Node(filter);
         System.out.println("TcF=" + target.contains(filter));
         System.out.println("FcT=" + filter.contains(target));
 
-        System.out.println("Target: " + tNode);
+        System.out.println("Target: " + describe(target));
         target.forEachIndex((x) -> {
             System.out.print(String.format("%s ", x));
             return true;
         });
         System.out.println();
 
-        System.out.println("Filter: " + fNode);
+        System.out.println("Filter: " + describe(filter));
         filter.forEachIndex((x) -> {
             System.out.print(String.format("%s ", x));
             return true;
@@ -0,0 +1,76 @@
+package org.xenei.bloompaper.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TraversalTest {
+
+    /**
+     * Visits a complete binary tree where node n has the children 2n+1 and 2n+2.
+     */
+    private List<Integer> visit(Traversal.Order order, int limit) {
+        List<Integer> visited = new ArrayList<Integer>();
+        Traversal.<Integer>run(order, 0, (node, frontier) -> {
+            visited.add(node);
+            if (2 * node + 2 < limit) {
+                frontier.push(2 * node + 2);
+                frontier.push(2 * node + 1);
+            }
+            return true;
+        });
+        return visited;
+    }
+
+    @Test
+    public void testOrder() {
+        assertEquals(Arrays.asList(0, 1, 3, 4, 2, 5, 6), visit(Traversal.Order.DEPTH_FIRST, 7));
+        assertEquals(Arrays.asList(0, 2, 1, 6, 5, 4, 3), visit(Traversal.Order.BREADTH_FIRST, 7));
+    }
+
+    @Test
+    public void testEarlyTermination() {
+        int[] count = { 0 };
+        assertFalse(Traversal.<Integer>run(Traversal.Order.DEPTH_FIRST, 0, (node, frontier) -> {
+            frontier.push(node + 1);
+            return ++count[0] < 10;
+        }));
+        assertEquals(10, count[0]);
+        // the frontier left by the terminated traversal is not reused.
+        assertEquals(7, visit(Traversal.Order.BREADTH_FIRST, 7).size());
+    }
+
+    @Test
+    public void testDeepTree() {
+        int[] depth = { 0 };
+        assertTrue(Traversal.<Integer>run(Traversal.Order.DEPTH_FIRST, 0, (node, frontier) -> {
+            depth[0] = node;
+            if (node < 1000000) {
+                frontier.push(node + 1);
+            }
+            return true;
+        }));
+        assertEquals(1000000, depth[0]);
+    }
+
+    @Test
+    public void testNestedTraversal() {
+        List<Integer> outer = new ArrayList<Integer>();
+        Traversal.<Integer>run(Traversal.Order.BREADTH_FIRST, 0, (node, frontier) -> {
+            outer.add(node);
+            assertEquals(3, visit(Traversal.Order.DEPTH_FIRST, 3).size());
+            if (node < 100) {
+                frontier.push(node + 1);
+                frontier.push(node + 1000);
+            }
+            return true;
+        });
+        assertEquals(201, outer.size());
+    }
+}
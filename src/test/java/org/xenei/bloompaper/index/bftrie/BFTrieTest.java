@@ -0,0 +1,120 @@
+package org.xenei.bloompaper.index.bftrie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+import org.xenei.bloompaper.index.Traversal;
+
+public class BFTrieTest {
+
+    private void assertMatchesLinearScan(BFTrie trie, Consumer<BloomFilter> add) {
+        assertMatchesLinearScan(trie, add, Shape.fromNP(3, 1.0 / 100000), 300);
+    }
+
+    private void assertMatchesLinearScan(BFTrie trie, Consumer<BloomFilter> add, Shape shape, int population) {
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < population; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            add.accept(bf);
+        }
+        for (int i = 0; i < population / 3; i++) {
+            assertTrue(trie.remove(filters.remove(0)));
+        }
+        assertEquals(filters.size(), trie.count());
+        for (BloomFilter target : filters) {
+            assertTrue(trie.find(target));
+            int[] count = { 0 };
+            trie.search(bf -> {
+                assertTrue(bf.contains(target));
+                count[0]++;
+            }, target);
+            assertEquals(filters.stream().filter(bf -> bf.contains(target)).count(), count[0]);
+        }
+    }
+
+    @Test
+    public void testBFTrie4() {
+        BFTrie4 trie = new BFTrie4(Shape.fromNP(3, 1.0 / 100000));
+        assertMatchesLinearScan(trie, trie::add);
+    }
+
+    @Test
+    public void testBFTrie8() {
+        BFTrie8 trie = new BFTrie8(Shape.fromNP(3, 1.0 / 100000));
+        assertMatchesLinearScan(trie, trie::add);
+    }
+
+    @Test
+    public void testPathCompressed() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        PathCompressedBFTrie trie = new PathCompressedBFTrie(shape, 4);
+        assertMatchesLinearScan(trie, trie::add);
+        trie = new PathCompressedBFTrie(shape, Byte.SIZE);
+        assertMatchesLinearScan(trie, trie::add);
+    }
+
+    @Test
+    public void testPathCompressedSparse() {
+        Shape shape = Shape.fromKM(17, 1 << 20);
+        PathCompressedBFTrie trie = new PathCompressedBFTrie(shape, 4);
+        assertMatchesLinearScan(trie, trie::add, shape, 60);
+    }
+
+    @Test
+    public void testTraversalOrderAndEarlyTermination() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        BFTrie4 trie = new BFTrie4(shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 200; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            trie.add(bf);
+        }
+        BloomFilter empty = new SimpleBloomFilter(shape);
+        List<BloomFilter> depthFirst = new ArrayList<BloomFilter>();
+        trie.search(depthFirst::add, empty);
+        assertEquals(200, depthFirst.size());
+
+        trie.setTraversalOrder(Traversal.Order.BREADTH_FIRST);
+        List<BloomFilter> breadthFirst = new ArrayList<BloomFilter>();
+        trie.search(breadthFirst::add, empty);
+        assertEquals(200, breadthFirst.size());
+        // TestingBloomFilter equality does not hold between instances so compare identities.
+        Set<BloomFilter> found = Collections.newSetFromMap(new IdentityHashMap<BloomFilter, Boolean>());
+        found.addAll(breadthFirst);
+        assertTrue(depthFirst.stream().allMatch(found::contains));
+
+        int[] count = { 0 };
+        assertFalse(trie.searchWhile(bf -> ++count[0] < 5, empty));
+        assertEquals(5, count[0]);
+        assertTrue(trie.searchWhile(bf -> true, filters.get(0)));
+    }
+
+    @Test
+    public void testPermuted() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        PermutedBFTrie trie = new PermutedBFTrie(shape, 4, 100);
+        assertMatchesLinearScan(trie, trie::add);
+        int[] permutation = trie.getPermutation();
+        assertEquals(shape.getNumberOfBits(), Arrays.stream(permutation).distinct().count());
+        // a shape that does not fill the last chunk.
+        shape = Shape.fromKM(5, 70);
+        trie = new PermutedBFTrie(shape, Byte.SIZE, 50);
+        assertMatchesLinearScan(trie, trie::add, shape, 300);
+    }
+}
@@ -0,0 +1,56 @@
+package org.xenei.bloompaper.index.bloofi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+
+public class BloofiTest {
+
+    private void assertMatchesLinearScan(Bloofi bloofi, List<BloomFilter> filters) {
+        assertEquals(filters.size(), bloofi.count());
+        for (BloomFilter target : filters) {
+            int[] count = { 0 };
+            bloofi.search(bf -> {
+                assertTrue(bf.contains(target));
+                count[0]++;
+            }, target);
+            assertEquals(filters.stream().filter(bf -> bf.contains(target)).count(), count[0]);
+        }
+    }
+
+    @Test
+    public void testNodeSizes() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        for (int nodeSize : new int[] { 4, 7, InnerNode.DEFAULT_NODE_SIZE }) {
+            Bloofi bloofi = new Bloofi(500, shape, nodeSize);
+            List<BloomFilter> filters = new ArrayList<BloomFilter>();
+            for (int i = 0; i < 500; i++) {
+                BloomFilter bf = new TestingBloomFilter(shape);
+                filters.add(bf);
+                bloofi.add(bf);
+            }
+            // duplicates are counted in the inner node filters across splits.
+            for (int i = 0; i < 20; i++) {
+                filters.add(filters.get(i));
+                bloofi.add(filters.get(i));
+            }
+            assertMatchesLinearScan(bloofi, filters);
+            for (int i = 0; i < 200; i++) {
+                assertTrue(bloofi.delete(filters.remove(filters.size() - 1)));
+            }
+            assertMatchesLinearScan(bloofi, filters);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNodeSizeTooSmall() {
+        new Bloofi(10, Shape.fromNP(3, 1.0 / 100000), 3);
+    }
+}
@@ -0,0 +1,76 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+import org.xenei.bloompaper.index.FrozenBloomFilter;
+
+public class ColumnFlatBloofiTest {
+    int n = 3;
+    double p = 1.0 / 100000;
+    Shape shape = Shape.fromNP(n, p);
+
+    @Test
+    public void testDelete() {
+        ColumnFlatBloofi flatBloofi = new ColumnFlatBloofi(500, shape);
+
+        BloomFilter bf = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        flatBloofi.add(bf);
+        flatBloofi.add(new TestingBloomFilter(shape));
+        flatBloofi.add(new TestingBloomFilter(shape));
+        flatBloofi.add(bf);
+        flatBloofi.add(new TestingBloomFilter(shape));
+
+        assertEquals(5, flatBloofi.count());
+        assertTrue(flatBloofi.delete(bf));
+        assertEquals(4, flatBloofi.count());
+        assertTrue(flatBloofi.delete(bf));
+        assertEquals(3, flatBloofi.count());
+    }
+
+    @Test
+    public void testEnginesMatchFlatBloofi() {
+        // population 1 forces the columns to grow; 70000 filters span several chunks.
+        FlatBloofi expected = new FlatBloofi(1, shape);
+        ColumnFlatBloofi scalar = new ColumnFlatBloofi(1, shape, new ScalarColumnAnd());
+        ColumnFlatBloofi loaded = new ColumnFlatBloofi(1, shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 70000; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            expected.add(bf);
+            scalar.add(bf);
+            loaded.add(bf);
+        }
+
+        for (int i = 0; i < filters.size(); i += 997) {
+            BloomFilter bf = filters.get(i);
+            int[] slots = slots(expected, bf);
+            assertArrayEquals(slots, slots(scalar, bf));
+            assertArrayEquals(loaded.getEngine().getName(), slots, slots(loaded, bf));
+            assertArrayEquals(expected.getBloomAt(slots[0]).asBitMapArray(),
+                    loaded.getBloomAt(slots[0]).asBitMapArray());
+        }
+    }
+
+    private int[] slots(FlatBloofi bloofi, BloomFilter bf) {
+        List<Integer> result = new ArrayList<Integer>();
+        bloofi.searchSlots(result::add, bf);
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int[] slots(ColumnFlatBloofi bloofi, BloomFilter bf) {
+        List<Integer> result = new ArrayList<Integer>();
+        bloofi.searchSlots(result::add, bf);
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
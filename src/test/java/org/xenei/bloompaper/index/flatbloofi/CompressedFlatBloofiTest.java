@@ -0,0 +1,93 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+import org.xenei.bloompaper.index.FrozenBloomFilter;
+
+public class CompressedFlatBloofiTest {
+    int n = 3;
+    double p = 1.0 / 100000;
+    Shape shape = Shape.fromNP(n, p);
+
+    @Test
+    public void testDelete() {
+        CompressedFlatBloofi flatBloofi = new CompressedFlatBloofi(500, shape);
+
+        BloomFilter bf = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        flatBloofi.add(bf);
+        flatBloofi.add(new TestingBloomFilter(shape));
+        flatBloofi.add(new TestingBloomFilter(shape));
+        flatBloofi.add(bf);
+        flatBloofi.add(new TestingBloomFilter(shape));
+
+        assertEquals(5, flatBloofi.count());
+        assertTrue(flatBloofi.delete(bf));
+        assertEquals(4, flatBloofi.count());
+        assertTrue(flatBloofi.delete(bf));
+        assertEquals(3, flatBloofi.count());
+        int[] found = { 0 };
+        flatBloofi.searchSlots(idx -> found[0]++, bf);
+        assertEquals(0, found[0]);
+    }
+
+    @Test
+    public void testMatchesFlatBloofi() {
+        // population 1 forces the slots to grow.
+        FlatBloofi expected = new FlatBloofi(1, shape);
+        expected.setCompactionThreshold(0);
+        CompressedFlatBloofi actual = new CompressedFlatBloofi(1, shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 5000; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            expected.add(bf);
+            actual.add(bf);
+        }
+        assertMatches(expected, actual, filters);
+
+        // cleared slots are refilled without changing the other slots.
+        for (int i = 0; i < filters.size(); i += 7) {
+            assertTrue(expected.delete(filters.get(i)));
+            assertTrue(actual.delete(filters.get(i)));
+        }
+        for (int i = 0; i < filters.size(); i += 14) {
+            expected.add(filters.get(i));
+            actual.add(filters.get(i));
+        }
+        actual.runOptimize();
+        assertEquals(expected.count(), actual.count());
+        assertMatches(expected, actual, filters);
+    }
+
+    /**
+     * The slots are filled in a different order after deletes so the matching filters are compared.
+     */
+    private void assertMatches(FlatBloofi expected, CompressedFlatBloofi actual, List<BloomFilter> filters) {
+        for (int i = 0; i < filters.size(); i += 97) {
+            BloomFilter bf = filters.get(i);
+            List<String> found = found(expected::search, bf);
+            assertTrue(found.size() > 0);
+            assertEquals(found, found(actual::search, bf));
+        }
+    }
+
+    private List<String> found(BiConsumer<Consumer<BloomFilter>, BloomFilter> search, BloomFilter bf) {
+        List<String> result = new ArrayList<String>();
+        search.accept(f -> result.add(Arrays.toString(f.asBitMapArray())), bf);
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -1,6 +1,13 @@
 package org.xenei.bloompaper.index.flatbloofi;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.collections4.bloomfilter.BitMapProducer;
 import org.apache.commons.collections4.bloomfilter.BloomFilter;
@@ -56,4 +63,164 @@ public class FlatBloofiTest {
 
     }
 
+    @Test
+    public void testParallelSearch() {
+        int n = 3;
+        double p = 1.0 / 100000;
+        Shape shape = Shape.fromNP(n, p);
+
+        FlatBloofi flatBloofi = new FlatBloofi(1000, shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 1000; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            flatBloofi.add(bf);
+        }
+
+        List<BloomFilter> expected = new ArrayList<BloomFilter>();
+        List<BloomFilter> actual = new ArrayList<BloomFilter>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (BloomFilter bf : filters) {
+                expected.clear();
+                actual.clear();
+                flatBloofi.setParallel(null, 1);
+                flatBloofi.search(expected::add, bf);
+                flatBloofi.setParallel(pool, 1);
+                flatBloofi.search(actual::add, bf);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals(expected.get(i).asBitMapArray(), actual.get(i).asBitMapArray());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSlotSearch() {
+        int n = 3;
+        double p = 1.0 / 100000;
+        Shape shape = Shape.fromNP(n, p);
+
+        FlatBloofi flatBloofi = new FlatBloofi(200, shape);
+        for (int i = 0; i < 200; i++) {
+            flatBloofi.add(new TestingBloomFilter(shape));
+        }
+        BloomFilter bf = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        flatBloofi.add(bf);
+
+        List<BloomFilter> expected = new ArrayList<BloomFilter>();
+        List<Integer> slots = new ArrayList<Integer>();
+        flatBloofi.search(expected::add, bf);
+        flatBloofi.searchSlots(slots::add, bf);
+        assertEquals(expected.size(), slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            BloomFilter found = flatBloofi.getBloomAt(slots.get(i));
+            assertTrue(found.contains(bf));
+            assertArrayEquals(expected.get(i).asBitMapArray(), found.asBitMapArray());
+        }
+    }
+
+    @Test
+    public void testFreeSlotReuse() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        FlatBloofi flatBloofi = new FlatBloofi(128, shape);
+        flatBloofi.setCompactionThreshold(0);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 128; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            flatBloofi.add(bf);
+        }
+        assertEquals(2, flatBloofi.blockCount());
+        assertTrue(flatBloofi.delete(filters.get(3)));
+        assertTrue(flatBloofi.delete(filters.get(100)));
+        flatBloofi.add(filters.get(3));
+        flatBloofi.add(filters.get(100));
+        assertEquals(2, flatBloofi.blockCount());
+        assertEquals(128, flatBloofi.count());
+        flatBloofi.add(new TestingBloomFilter(shape));
+        assertEquals(3, flatBloofi.blockCount());
+    }
+
+    @Test
+    public void testCompact() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        FlatBloofi flatBloofi = new FlatBloofi(640, shape);
+        flatBloofi.setCompactionThreshold(0);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 640; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            flatBloofi.add(bf);
+        }
+        // empty the first block and thin out the rest.
+        List<BloomFilter> live = new ArrayList<BloomFilter>();
+        for (int i = 0; i < filters.size(); i++) {
+            if (i < 64 || i % 3 != 0) {
+                assertTrue(flatBloofi.delete(filters.get(i)));
+            } else {
+                live.add(filters.get(i));
+            }
+        }
+        assertEquals(10, flatBloofi.blockCount());
+        assertEquals(live.size(), flatBloofi.count());
+
+        flatBloofi.compact();
+        assertEquals((live.size() + 63) / 64, flatBloofi.blockCount());
+        assertEquals(live.size(), flatBloofi.count());
+        for (BloomFilter bf : live) {
+            boolean[] found = { false };
+            flatBloofi.search(f -> found[0] |= Arrays.equals(f.asBitMapArray(), bf.asBitMapArray()), bf);
+            assertTrue(found[0]);
+        }
+        for (BloomFilter bf : live) {
+            assertTrue(flatBloofi.delete(bf));
+        }
+        assertEquals(0, flatBloofi.count());
+        flatBloofi.compact();
+        assertEquals(0, flatBloofi.blockCount());
+    }
+
+    @Test
+    public void testAutomaticCompaction() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        FlatBloofi flatBloofi = new FlatBloofi(640, shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 640; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            flatBloofi.add(bf);
+        }
+        for (int i = 0; i < 600; i++) {
+            assertTrue(flatBloofi.delete(filters.get(i)));
+        }
+        assertEquals(40, flatBloofi.count());
+        assertEquals(1, flatBloofi.blockCount());
+    }
+
+    @Test
+    public void testBulkLoad() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        FlatBloofi expected = new FlatBloofi(200, shape);
+        FlatBloofi actual = new FlatBloofi(200, shape);
+        BloomFilter[] filters = new BloomFilter[150];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = new TestingBloomFilter(shape);
+            expected.add(filters[i]);
+        }
+        // partially fill a block so the bulk load fills the free slots first.
+        actual.add(filters[0]);
+        actual.bulkLoad(Arrays.copyOfRange(filters, 1, filters.length));
+        assertEquals(filters.length, actual.count());
+        assertEquals(3, actual.blockCount());
+        for (int i = 0; i < filters.length; i++) {
+            assertArrayEquals(expected.getBloomAt(i).asBitMapArray(), actual.getBloomAt(i).asBitMapArray());
+        }
+        actual.add(new TestingBloomFilter(shape));
+        assertEquals(filters.length + 1, actual.count());
+        assertEquals(3, actual.blockCount());
+    }
 }
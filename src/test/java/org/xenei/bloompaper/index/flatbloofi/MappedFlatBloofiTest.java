@@ -0,0 +1,94 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.collections4.bloomfilter.BitMapProducer;
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+import org.xenei.bloompaper.index.FrozenBloomFilter;
+
+public class MappedFlatBloofiTest {
+    int n = 3;
+    double p = 1.0 / 100000;
+    Shape shape = Shape.fromNP(n, p);
+
+    @Test
+    public void testDelete() {
+        MappedFlatBloofi flatBloofi = new MappedFlatBloofi(500, shape);
+
+        BloomFilter bf = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        flatBloofi.add(bf);
+        flatBloofi.add(new TestingBloomFilter(shape));
+        flatBloofi.add(bf);
+        flatBloofi.add(new TestingBloomFilter(shape));
+
+        assertEquals(4, flatBloofi.count());
+        int found = count(flatBloofi, bf);
+        assertTrue(flatBloofi.delete(bf));
+        assertEquals(3, flatBloofi.count());
+        assertEquals(found - 1, count(flatBloofi, bf));
+    }
+
+    @Test
+    public void testSegments() {
+        // population 1 yields 1 block per segment.
+        MappedFlatBloofi flatBloofi = new MappedFlatBloofi(1, shape);
+        BloomFilter bf = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        for (int i = 0; i < 200; i++) {
+            flatBloofi.add(new TestingBloomFilter(shape));
+        }
+        int before = count(flatBloofi, bf);
+        flatBloofi.add(bf);
+        assertEquals(201, flatBloofi.count());
+        assertEquals(before + 1, count(flatBloofi, bf));
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        File file = File.createTempFile("flatbloofi", ".idx");
+        file.deleteOnExit();
+        BloomFilter bf = new FrozenBloomFilter(shape, BitMapProducer.fromBitMapArray(new long[] { 1, 1 }));
+        int found;
+
+        try (MappedFlatBloofi flatBloofi = new MappedFlatBloofi(file.toPath(), 10, shape)) {
+            for (int i = 0; i < 100; i++) {
+                flatBloofi.add(new TestingBloomFilter(shape));
+            }
+            flatBloofi.add(bf);
+            assertEquals(101, flatBloofi.count());
+            found = count(flatBloofi, bf);
+        }
+
+        try (MappedFlatBloofi flatBloofi = new MappedFlatBloofi(file.toPath(), 10, shape)) {
+            assertEquals(101, flatBloofi.count());
+            assertEquals(found, count(flatBloofi, bf));
+            assertTrue(flatBloofi.delete(bf));
+            assertEquals(100, flatBloofi.count());
+            assertEquals(found - 1, count(flatBloofi, bf));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReopenWrongShape() throws IOException {
+        File file = File.createTempFile("flatbloofi", ".idx");
+        file.deleteOnExit();
+        try (MappedFlatBloofi flatBloofi = new MappedFlatBloofi(file.toPath(), 10, shape)) {
+            flatBloofi.add(new TestingBloomFilter(shape));
+        }
+        try (MappedFlatBloofi flatBloofi = new MappedFlatBloofi(file.toPath(), 10, Shape.fromNP(10, p))) {
+            flatBloofi.count();
+        }
+    }
+
+    private int count(MappedFlatBloofi flatBloofi, BloomFilter bf) {
+        int[] count = { 0 };
+        flatBloofi.search(x -> count[0]++, bf);
+        return count[0];
+    }
+}
@@ -0,0 +1,92 @@
+package org.xenei.bloompaper.index.hamming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+
+public class BFHammingTest {
+
+    private int linearCount(List<BloomFilter> filters, BloomFilter target) {
+        int result = 0;
+        for (BloomFilter bf : filters) {
+            if (bf.contains(target)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private int indexCount(BFHamming hamming, BloomFilter target) {
+        int[] count = { 0 };
+        hamming.search(bf -> {
+            assertTrue(bf.contains(target));
+            count[0]++;
+        }, target);
+        return count[0];
+    }
+
+    @Test
+    public void testSearchMatchesLinearScan() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        BFHamming hamming = new BFHamming(shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 500; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            hamming.add(bf);
+        }
+        // duplicates
+        for (int i = 0; i < 50; i++) {
+            filters.add(filters.get(i));
+            hamming.add(filters.get(i));
+        }
+        for (BloomFilter bf : filters) {
+            assertEquals(linearCount(filters, bf), indexCount(hamming, bf));
+            assertTrue(hamming.scan(bf) > 0);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(hamming.delete(filters.get(i)));
+        }
+        List<BloomFilter> remaining = filters.subList(100, filters.size());
+        for (BloomFilter bf : filters) {
+            assertEquals(linearCount(remaining, bf), indexCount(hamming, bf));
+        }
+    }
+
+    @Test
+    public void testInterleavedAddAndDelete() {
+        Shape shape = Shape.fromNP(3, 1.0 / 100000);
+        BFHamming hamming = new BFHamming(shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 3000; i++) {
+            BloomFilter bf = new TestingBloomFilter(shape);
+            filters.add(bf);
+            hamming.add(bf);
+            if (i % 3 == 2) {
+                assertTrue(hamming.delete(filters.remove(filters.size() - 2)));
+            }
+        }
+        // delete enough to compact the partitions then add some back
+        List<BloomFilter> head = filters.subList(0, filters.size() * 2 / 3);
+        List<BloomFilter> deleted = new ArrayList<BloomFilter>(head);
+        head.clear();
+        for (BloomFilter bf : deleted) {
+            assertTrue(hamming.delete(bf));
+        }
+        for (int i = 0; i < deleted.size(); i += 2) {
+            filters.add(deleted.get(i));
+            hamming.add(deleted.get(i));
+        }
+        for (BloomFilter bf : deleted) {
+            assertEquals(linearCount(filters, bf), indexCount(hamming, bf));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.xenei.bloompaper.index.inverted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class PostingListTest {
+
+    private void assertMatches(TreeSet<Integer> expected, PostingList underTest) {
+        assertEquals(expected.size(), underTest.cardinality());
+        List<Integer> actual = new ArrayList<Integer>();
+        underTest.forEach(actual::add);
+        assertEquals(new ArrayList<Integer>(expected), actual);
+        for (int id : expected) {
+            assertTrue(underTest.contains(id));
+        }
+    }
+
+    @Test
+    public void testArrayAndBitmapContainers() {
+        Random random = new Random(1);
+        PostingList underTest = new PostingList();
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        // enough ids in the first container to switch it to a bitmap.
+        for (int i = 0; i < 10000; i++) {
+            int id = random.nextInt(3 << 16);
+            assertEquals(expected.add(id), underTest.add(id));
+        }
+        assertMatches(expected, underTest);
+        assertFalse(underTest.contains(3 << 16));
+
+        // and remove enough to switch back to arrays.
+        for (Integer id : new ArrayList<Integer>(expected)) {
+            if (random.nextInt(4) != 0) {
+                expected.remove(id);
+                assertTrue(underTest.remove(id));
+                assertFalse(underTest.contains(id));
+            }
+        }
+        assertFalse(underTest.remove(3 << 16));
+        assertMatches(expected, underTest);
+    }
+
+    @Test
+    public void testRunContainers() {
+        PostingList underTest = new PostingList();
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        for (int i = 0; i < 70000; i++) {
+            if (i % 1000 < 900) {
+                underTest.add(i);
+                expected.add(i);
+            }
+        }
+        underTest.runOptimize();
+        assertMatches(expected, underTest);
+        assertFalse(underTest.contains(950));
+
+        // changes convert the runs back.
+        assertTrue(underTest.add(950));
+        expected.add(950);
+        assertTrue(underTest.remove(10));
+        expected.remove(10);
+        assertMatches(expected, underTest);
+    }
+
+    @Test
+    public void testIntersect() {
+        PostingList[] postings = new PostingList[3];
+        postings[0] = new PostingList();
+        postings[1] = new PostingList();
+        // id 1 has bits 0 and 1, id 2 has bit 0, id 3 has bits 0 and 1 and is not live.
+        for (int id : new int[] { 1, 2, 3 }) {
+            postings[0].add(id);
+        }
+        postings[1].add(1);
+        postings[1].add(3);
+        int[] cardinality = { 0, 2, 1, 2, 0 };
+        List<Integer> actual = new ArrayList<Integer>();
+        assertTrue(PostingLists.intersect(postings, new int[] { 1, 0 }, 5, id -> true, actual::add));
+        assertEquals(List.of(1, 3), actual);
+        assertTrue(PostingLists.intersect(postings, new int[] { 2 }, 5, id -> true, id -> false));
+
+        // the empty target matches every live id.
+        actual.clear();
+        assertTrue(PostingLists.intersect(postings, new int[0], 5, id -> id != 3, actual::add));
+        assertEquals(List.of(0, 1, 2, 4), actual);
+
+        assertEquals(2, PostingLists.findExact(postings, new int[] { 0 }, 5, id -> true, id -> cardinality[id]));
+        assertEquals(0, PostingLists.findExact(postings, new int[0], 5, id -> true, id -> cardinality[id]));
+        assertEquals(-1, PostingLists.findExact(postings, new int[] { 1 }, 5, id -> true, id -> cardinality[id]));
+    }
+}
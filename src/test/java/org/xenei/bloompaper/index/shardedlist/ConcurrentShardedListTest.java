@@ -0,0 +1,93 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.junit.Test;
+import org.xenei.bloompaper.TestingBloomFilter;
+
+public class ConcurrentShardedListTest {
+    private final Shape shape = Shape.fromNP(3, 1.0 / 100000);
+    private static final int WRITERS = 8;
+    private static final int PER_WRITER = 250;
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        // small shards so that the writers race to create new shards.
+        ConcurrentShardedList underTest = new ConcurrentShardedList(100, shape, 50);
+        List<List<BloomFilter>> work = new ArrayList<List<BloomFilter>>();
+        for (int w = 0; w < WRITERS; w++) {
+            List<BloomFilter> filters = new ArrayList<BloomFilter>();
+            for (int i = 0; i < PER_WRITER; i++) {
+                filters.add(new TestingBloomFilter(shape));
+            }
+            work.add(filters);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (List<BloomFilter> filters : work) {
+                futures.add(executor.submit(() -> filters.forEach(underTest::add)));
+            }
+            futures.add(executor.submit(() -> {
+                for (BloomFilter bf : work.get(0)) {
+                    underTest.count(bf);
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(WRITERS * PER_WRITER, underTest.count());
+            for (List<BloomFilter> filters : work) {
+                for (BloomFilter bf : filters) {
+                    assertTrue(underTest.count(bf) >= 1);
+                }
+            }
+
+            // delete half concurrently then reuse the freed slots.
+            futures.clear();
+            for (List<BloomFilter> filters : work) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < filters.size(); i += 2) {
+                        assertTrue(underTest.delete(filters.get(i)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(WRITERS * PER_WRITER / 2, underTest.count());
+
+            futures.clear();
+            for (List<BloomFilter> filters : work) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < filters.size(); i += 2) {
+                        underTest.add(filters.get(i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(WRITERS * PER_WRITER, underTest.count());
+            for (List<BloomFilter> filters : work) {
+                for (BloomFilter bf : filters) {
+                    assertTrue(underTest.delete(bf));
+                }
+            }
+            assertEquals(0, underTest.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.IndexProducer;
+import org.apache.commons.collections4.bloomfilter.SetOperations;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.junit.Test;
+
+public class GatekeeperMatrixTest {
+    private final Shape shape = Shape.fromKM(3, 200);
+
+    private int[] randomIndices(Random random, int count) {
+        return random.ints(count, 0, shape.getNumberOfBits()).distinct().toArray();
+    }
+
+    private BloomFilter filter(int[] indices) {
+        BloomFilter bf = new SimpleBloomFilter(shape);
+        bf.merge(IndexProducer.fromIndexArray(indices));
+        return bf;
+    }
+
+    @Test
+    public void testMatchesGatekeepers() {
+        Random random = new Random(1);
+        GatekeeperMatrix underTest = new GatekeeperMatrix(shape.getNumberOfBits());
+        // more than one block of shards.
+        List<BloomFilter> gatekeepers = new ArrayList<BloomFilter>();
+        for (int s = 0; s < 100; s++) {
+            assertEquals(s, underTest.addShard());
+            int[] indices = randomIndices(random, 60);
+            underTest.set(s, indices);
+            gatekeepers.add(filter(indices));
+        }
+        // clear some bits.
+        for (int s = 0; s < 100; s += 3) {
+            for (int k : randomIndices(random, 20)) {
+                underTest.clear(s, k);
+                BloomFilter bf = new SimpleBloomFilter(shape);
+                int[] kept = gatekeepers.get(s).asIndexArray();
+                bf.merge(IndexProducer.fromIndexArray(Arrays.stream(kept).filter(i -> i != k).toArray()));
+                gatekeepers.set(s, bf);
+            }
+        }
+
+        for (int q = 0; q < 50; q++) {
+            int[] query = randomIndices(random, 3);
+            BloomFilter target = filter(query);
+            List<Integer> expected = new ArrayList<Integer>();
+            int closest = -1;
+            int best = Integer.MAX_VALUE;
+            for (int s = 0; s < gatekeepers.size(); s++) {
+                if (gatekeepers.get(s).contains(target)) {
+                    expected.add(s);
+                }
+                int distance = SetOperations.hammingDistance(gatekeepers.get(s), target);
+                if (s % 2 == 1 && distance < best) {
+                    best = distance;
+                    closest = s;
+                }
+            }
+            List<Integer> actual = new ArrayList<Integer>();
+            underTest.candidates(query, actual::add);
+            assertEquals(expected, actual);
+            assertEquals(closest, underTest.closest(query, s -> s % 2 == 1));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.xenei.bloompaper.index.shardedlist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.collections4.bloomfilter.BloomFilter;
+import org.apache.commons.collections4.bloomfilter.IndexProducer;
+import org.apache.commons.collections4.bloomfilter.Shape;
+import org.apache.commons.collections4.bloomfilter.SimpleBloomFilter;
+import org.junit.Test;
+
+public class MinHashShardedListTest {
+    private final Shape shape = Shape.fromKM(17, 1000);
+
+    private BloomFilter filter(int[] indices) {
+        BloomFilter bf = new SimpleBloomFilter(shape);
+        bf.merge(IndexProducer.fromIndexArray(indices));
+        return bf;
+    }
+
+    @Test
+    public void testCorrelatedFilters() {
+        Random random = new Random(1);
+        // several buckets, each family shares most of its bits.
+        int population = 25000;
+        MinHashShardedList underTest = new MinHashShardedList(population, shape);
+        int[][] bases = new int[4][];
+        for (int f = 0; f < bases.length; f++) {
+            bases[f] = random.ints(14, 250 * f, 250 * (f + 1)).toArray();
+        }
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < population; i++) {
+            int[] indices = new int[17];
+            System.arraycopy(bases[i % bases.length], 0, indices, 0, 14);
+            for (int j = 14; j < indices.length; j++) {
+                indices[j] = random.nextInt(shape.getNumberOfBits());
+            }
+            BloomFilter bf = filter(indices);
+            filters.add(bf);
+            underTest.add(bf);
+        }
+        // equal filters select the same bucket.
+        assertEquals(underTest.bucket(filters.get(5)), underTest.bucket(filter(filters.get(5).asIndexArray())));
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(underTest.delete(filters.remove(filters.size() - 1)));
+        }
+        assertEquals(filters.size(), underTest.count());
+        for (int i = 0; i < filters.size(); i += 1009) {
+            BloomFilter target = filters.get(i);
+            int[] count = { 0 };
+            underTest.search(bf -> {
+                assertTrue(bf.contains(target));
+                count[0]++;
+            }, target);
+            assertEquals(filters.stream().filter(bf -> bf.contains(target)).count(), count[0]);
+        }
+    }
+
+    @Test
+    public void testReusesFreedSpace() {
+        Random random = new Random(2);
+        // a single bucket.
+        MinHashShardedList underTest = new MinHashShardedList(1, shape);
+        List<BloomFilter> filters = new ArrayList<BloomFilter>();
+        for (int i = 0; i < 10000; i++) {
+            BloomFilter bf = filter(random.ints(17, 0, shape.getNumberOfBits()).toArray());
+            filters.add(bf);
+            underTest.add(bf);
+        }
+        assertEquals(1, underTest.shardCount());
+        underTest.add(filter(new int[] { 1, 2, 3 }));
+        assertEquals(2, underTest.shardCount());
+        underTest.add(filter(new int[] { 4, 5, 6 }));
+
+        // the first shard has space again once the second is full.
+        assertTrue(underTest.delete(filters.get(10)));
+        assertTrue(underTest.delete(filters.get(20)));
+        for (int i = 2; i < 10000; i++) {
+            underTest.add(filter(random.ints(17, 0, shape.getNumberOfBits()).toArray()));
+        }
+        assertEquals(2, underTest.shardCount());
+        underTest.add(filter(new int[] { 7, 8, 9 }));
+        underTest.add(filter(new int[] { 7, 8, 10 }));
+        assertEquals(2, underTest.shardCount());
+        underTest.add(filter(new int[] { 7, 8, 11 }));
+        assertEquals(3, underTest.shardCount());
+        assertEquals(20001, underTest.count());
+    }
+}
@@ -0,0 +1,57 @@
+package org.xenei.bloompaper.index.flatbloofi;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A ColumnAnd that uses the Java Vector API to process as many longs per instruction as the
+ * hardware supports.
+ * <p>
+ * Only compiled by the {@code vector} profile and requires {@code --add-modules jdk.incubator.vector}
+ * at runtime.
+ * </p>
+ */
+public class VectorColumnAnd implements ColumnAnd {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public boolean and(long[] acc, long[] column, int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        LongVector any = LongVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            LongVector v = LongVector.fromArray(SPECIES, acc, i).and(LongVector.fromArray(SPECIES, column, offset + i));
+            v.intoArray(acc, i);
+            any = any.or(v);
+        }
+        long tail = any.reduceLanes(VectorOperators.OR);
+        for (; i < length; i++) {
+            tail |= (acc[i] &= column[offset + i]);
+        }
+        return tail != 0;
+    }
+
+    @Override
+    public boolean andNot(long[] acc, long[] column, int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        LongVector any = LongVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            LongVector v = LongVector.fromArray(SPECIES, acc, i)
+                    .lanewise(VectorOperators.AND_NOT, LongVector.fromArray(SPECIES, column, offset + i));
+            v.intoArray(acc, i);
+            any = any.or(v);
+        }
+        long tail = any.reduceLanes(VectorOperators.OR);
+        for (; i < length; i++) {
+            tail |= (acc[i] &= ~column[offset + i]);
+        }
+        return tail != 0;
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + SPECIES;
+    }
+}